@@ -0,0 +1,79 @@
+package edu.princeton.alg2.bench;
+
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WordNet fixtures of the wordnet directory by benchmark parameter name. The subgraphs up to 10000 come with their own
+ * synsets, the 50000 subgraph and the full-size hypernyms variants share synsets.txt, which is not in the directory:
+ * benchmarks of WordNet default to the subgraphs, while digraphs are sized by their hypernyms alone, so that
+ * benchmarks of SAP run on every dataset
+ *
+ * @author Alexey Novakov
+ */
+final class Datasets {
+    private static final Map<String, String[]> FILES = new HashMap<>();
+
+    static {
+        for (String size : new String[]{"100", "500", "1000", "5000", "10000"}) {
+            FILES.put(size, new String[]{"synsets" + size + "-subgraph.txt", "hypernyms" + size + "-subgraph.txt"});
+        }
+        FILES.put("50000", new String[]{"synsets.txt", "hypernyms50000-subgraph.txt"});
+        FILES.put("full", new String[]{"synsets.txt", "hypernyms.txt"});
+        for (String size : new String[]{"100K", "200K", "300K"}) {
+            FILES.put(size, new String[]{"synsets.txt", "hypernyms" + size + ".txt"});
+        }
+    }
+
+    private Datasets() {
+    }
+
+    static String synsets(String dataset) {
+        return path(files(dataset)[0]);
+    }
+
+    static String hypernyms(String dataset) {
+        return path(files(dataset)[1]);
+    }
+
+    // synsets (second field of every line) of the dataset, indexed by synset id
+    static String[] synsetsById(String dataset) {
+        return Arrays.stream(new In(synsets(dataset)).readAllLines())
+                .map(line -> line.split(",")[1])
+                .toArray(String[]::new);
+    }
+
+    // hypernyms digraph of the dataset with a vertex per id up to the largest one, built with algs4 so that
+    // benchmarks only rely on the public SAP API
+    static Digraph digraph(String dataset) {
+        int[][] ids = Arrays.stream(new In(hypernyms(dataset)).readAllLines())
+                .map(line -> Arrays.stream(line.split(",")).mapToInt(Integer::parseInt).toArray())
+                .toArray(int[][]::new);
+        Digraph digraph = new Digraph(1 + Arrays.stream(ids).flatMapToInt(Arrays::stream).max().orElse(-1));
+        for (int[] line : ids) {
+            for (int i = 1; i < line.length; i++) digraph.addEdge(line[0], line[i]);
+        }
+        return digraph;
+    }
+
+    private static String[] files(String dataset) {
+        String[] files = FILES.get(dataset);
+        if (files == null) throw new IllegalArgumentException("Unknown dataset " + dataset);
+        return files;
+    }
+
+    // the wordnet.dir system property, or the wordnet directory of the working directory or its parent
+    private static String path(String file) {
+        String dir = System.getProperty("wordnet.dir");
+        if (dir == null) dir = new File("wordnet").isDirectory() ? "wordnet" : "../wordnet";
+
+        File path = new File(dir, file);
+        if (!path.isFile()) throw new IllegalStateException("Fixture not found: " + path.getAbsolutePath());
+        return path.getPath();
+    }
+}
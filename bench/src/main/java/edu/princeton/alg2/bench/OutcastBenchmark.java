@@ -0,0 +1,66 @@
+package edu.princeton.alg2.bench;
+
+import edu.princeton.alg2.week1.Outcast;
+import edu.princeton.alg2.week1.WordNet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcast.outcast on random noun lists of the given size. The datasets sharing synsets.txt can be given with
+ * -p dataset=... once it is placed into the wordnet directory
+ *
+ * @author Alexey Novakov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutcastBenchmark {
+    private static final int INPUTS = 64;
+
+    @Param({"1000", "10000"})
+    public String dataset;
+
+    @Param({"5", "10", "30"})
+    public int nouns;
+
+    private Outcast outcast;
+    private String[][] inputs = new String[INPUTS][];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WordNet wordNet = new WordNet(Datasets.synsets(dataset), Datasets.hypernyms(dataset));
+        outcast = new Outcast(wordNet);
+
+        List<String> all = new ArrayList<>();
+        wordNet.nouns().forEach(all::add);
+        Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            inputs[i] = new String[nouns];
+            for (int j = 0; j < nouns; j++) inputs[i][j] = all.get(random.nextInt(all.size()));
+        }
+    }
+
+    @Benchmark
+    public String outcast() {
+        return outcast.outcast(inputs[next++ & (INPUTS - 1)]);
+    }
+}
@@ -0,0 +1,120 @@
+package edu.princeton.alg2.bench;
+
+import edu.princeton.alg2.week1.SAP;
+import edu.princeton.cs.algs4.Digraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SAP.length and SAP.ancestor on vertex pairs of every hypernyms fixture, per query mix:
+ * <ul>
+ * <li>near: siblings and cousins, a few edges apart</li>
+ * <li>far: the longest quarter of random pairs</li>
+ * </ul>
+ * Every invocation answers one query from a fixed, pre-generated list
+ *
+ * @author Alexey Novakov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SapBenchmark {
+    static final int QUERIES = 1024;
+
+    @Param({"1000", "10000", "50000", "full", "300K"})
+    public String dataset;
+
+    @Param({"near", "far"})
+    public String mix;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private SAP sap;
+    private int[] v = new int[QUERIES];
+    private int[] w = new int[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Digraph digraph = Datasets.digraph(dataset);
+        sap = new SAP(digraph);
+        if (indexed) sap.buildIndex();
+
+        List<int[]> pairs = pairs(digraph, mix, new Random(42));
+        for (int i = 0; i < QUERIES; i++) {
+            v[i] = pairs.get(i)[0];
+            w[i] = pairs.get(i)[1];
+        }
+    }
+
+    @Benchmark
+    public int length() {
+        int i = next++ & (QUERIES - 1);
+        return sap.length(v[i], w[i]);
+    }
+
+    @Benchmark
+    public int ancestor() {
+        int i = next++ & (QUERIES - 1);
+        return sap.ancestor(v[i], w[i]);
+    }
+
+    // QUERIES vertex pairs of the near or far mix
+    static List<int[]> pairs(Digraph digraph, String mix, Random random) {
+        return "near".equals(mix) ? nearPairs(digraph, random) : farPairs(digraph, random);
+    }
+
+    // a vertex and another child of one of its parents or grandparents
+    private static List<int[]> nearPairs(Digraph digraph, Random random) {
+        Digraph reverse = digraph.reverse();
+        List<int[]> pairs = new ArrayList<>();
+        while (pairs.size() < QUERIES) {
+            int vertex = random.nextInt(digraph.V());
+            int ancestor = vertex;
+            for (int up = 1 + random.nextInt(2); up > 0 && digraph.outdegree(ancestor) > 0; up--) {
+                ancestor = randomNeighbour(digraph.adj(ancestor), random);
+            }
+            if (ancestor == vertex || reverse.outdegree(ancestor) < 2) continue;
+            pairs.add(new int[]{vertex, randomNeighbour(reverse.adj(ancestor), random)});
+        }
+        return pairs;
+    }
+
+    // the longest quarter of random pairs
+    private static List<int[]> farPairs(Digraph digraph, Random random) {
+        SAP sap = new SAP(digraph);
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < QUERIES * 4; i++) {
+            int a = random.nextInt(digraph.V());
+            int b = random.nextInt(digraph.V());
+            pairs.add(new int[]{a, b, sap.length(a, b)});
+        }
+        pairs.sort((p, q) -> Integer.compare(q[2], p[2]));
+        return pairs.subList(0, QUERIES);
+    }
+
+    private static int randomNeighbour(Iterable<Integer> adj, Random random) {
+        List<Integer> neighbours = new ArrayList<>();
+        adj.forEach(neighbours::add);
+        return neighbours.get(random.nextInt(neighbours.size()));
+    }
+}
@@ -0,0 +1,48 @@
+package edu.princeton.alg2.bench;
+
+import edu.princeton.alg2.week1.WordNet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of a WordNet from synsets and hypernyms files. The datasets sharing synsets.txt can be given with
+ * -p dataset=... once it is placed into the wordnet directory
+ *
+ * @author Alexey Novakov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WordNetBenchmark {
+
+    @Param({"1000", "5000", "10000"})
+    public String dataset;
+
+    private String synsets;
+    private String hypernyms;
+
+    @Setup
+    public void setUp() {
+        synsets = Datasets.synsets(dataset);
+        hypernyms = Datasets.hypernyms(dataset);
+    }
+
+    @Benchmark
+    public WordNet construct() {
+        return new WordNet(synsets, hypernyms);
+    }
+}
@@ -0,0 +1,115 @@
+package edu.princeton.alg2.bench;
+
+import edu.princeton.alg2.week1.WordNet;
+import edu.princeton.cs.algs4.Digraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WordNet.distance and WordNet.sap on noun pairs, per query mix:
+ * <ul>
+ * <li>near and far: the first nouns of the synsets of the pairs of SapBenchmark</li>
+ * <li>multi: nouns that belong to several synsets, i.e. multi-source searches</li>
+ * </ul>
+ * Every invocation answers one query from a fixed, pre-generated list. The datasets sharing synsets.txt can be
+ * given with -p dataset=... once it is placed into the wordnet directory
+ *
+ * @author Alexey Novakov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WordNetQueryBenchmark {
+    private static final int QUERIES = SapBenchmark.QUERIES;
+    private static final int MULTI_SYNSET = 3;
+
+    @Param({"1000", "10000"})
+    public String dataset;
+
+    @Param({"near", "far", "multi"})
+    public String mix;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private WordNet wordNet;
+    private String[] nounsA = new String[QUERIES];
+    private String[] nounsB = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Digraph digraph = Datasets.digraph(dataset);
+        String[] synsets = Datasets.synsetsById(dataset);
+        wordNet = new WordNet(Datasets.synsets(dataset), Datasets.hypernyms(dataset));
+        if (indexed) wordNet.buildIndex();
+
+        Random random = new Random(42);
+        List<int[]> pairs = SapBenchmark.pairs(digraph, mix, random);
+        for (int i = 0; i < QUERIES; i++) {
+            nounsA[i] = firstNoun(synsets[pairs.get(i)[0]]);
+            nounsB[i] = firstNoun(synsets[pairs.get(i)[1]]);
+        }
+        if ("multi".equals(mix)) multiSynsetNouns(synsets, random);
+    }
+
+    @Benchmark
+    public int distance() {
+        int i = next++ & (QUERIES - 1);
+        return wordNet.distance(nounsA[i], nounsB[i]);
+    }
+
+    @Benchmark
+    public String sap() {
+        int i = next++ & (QUERIES - 1);
+        return wordNet.sap(nounsA[i], nounsB[i]);
+    }
+
+    // replaces the noun pairs with nouns occurring in several synsets, falling back to the most ambiguous ones
+    private void multiSynsetNouns(String[] synsets, Random random) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (String synset : synsets) {
+            for (String noun : synset.split(" ")) occurrences.merge(noun, 1, Integer::sum);
+        }
+        String[] nouns = occurrences.entrySet().stream()
+                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
+                .filter(e -> e.getValue() >= MULTI_SYNSET)
+                .map(Map.Entry::getKey)
+                .toArray(String[]::new);
+        if (nouns.length < 2) {
+            nouns = occurrences.entrySet().stream()
+                    .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
+                    .limit(Math.max(2, occurrences.size() / 100))
+                    .map(Map.Entry::getKey)
+                    .toArray(String[]::new);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            nounsA[i] = nouns[random.nextInt(nouns.length)];
+            nounsB[i] = nouns[random.nextInt(nouns.length)];
+        }
+    }
+
+    private static String firstNoun(String synset) {
+        return Arrays.stream(synset.split(" ")).filter(noun -> !noun.isEmpty()).findFirst().orElse(synset);
+    }
+}
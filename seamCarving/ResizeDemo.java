@@ -1,11 +1,12 @@
 /******************************************************************************
  *  Compilation:  javac ResizeDemo.java
- *  Execution:    java ResizeDemo input.png columnsToRemove rowsToRemove
+ *  Execution:    java ResizeDemo input.png columnsToRemove rowsToRemove [ROWS_FIRST|GREEDY|OPTIMAL]
  *  Dependencies: SeamCarver.java SCUtility.java
  *                
  *
  *  Read image from file specified as command line argument. Use SeamCarver
- *  to remove number of rows and columns specified as command line arguments.
+ *  to remove number of rows and columns specified as command line arguments,
+ *  in the optional seam order.
  *  Show the images and print time elapsed to screen.
  *
  ******************************************************************************/
@@ -16,29 +17,22 @@ import edu.princeton.cs.algs4.Stopwatch;
 
 public class ResizeDemo {
     public static void main(String[] args) {
-        if (args.length != 3) {
-            StdOut.println("Usage:\njava ResizeDemo [image filename] [num cols to remove] [num rows to remove]");
+        if (args.length != 3 && args.length != 4) {
+            StdOut.println("Usage:\njava ResizeDemo [image filename] [num cols to remove] [num rows to remove] [seam order]");
             return;
         }
 
         Picture inputImg = new Picture(args[0]);
         int removeColumns = Integer.parseInt(args[1]);
         int removeRows = Integer.parseInt(args[2]); 
+        SeamCarver.Order order = args.length == 4 ? SeamCarver.Order.valueOf(args[3]) : SeamCarver.Order.ROWS_FIRST;
 
         StdOut.printf("image is %d columns by %d rows\n", inputImg.width(), inputImg.height());
         SeamCarver sc = new SeamCarver(inputImg);
 
         Stopwatch sw = new Stopwatch();
 
-        for (int i = 0; i < removeRows; i++) {
-            int[] horizontalSeam = sc.findHorizontalSeam();
-            sc.removeHorizontalSeam(horizontalSeam);
-        }
-
-        for (int i = 0; i < removeColumns; i++) {
-            int[] verticalSeam = sc.findVerticalSeam();
-            sc.removeVerticalSeam(verticalSeam);
-        }
+        sc.resize(sc.width() - removeColumns, sc.height() - removeRows, order);
         Picture outputImg = sc.picture();
 
         StdOut.printf("new image size is %d columns by %d rows\n", sc.width(), sc.height());
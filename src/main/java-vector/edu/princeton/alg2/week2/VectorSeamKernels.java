@@ -0,0 +1,156 @@
+package edu.princeton.alg2.week2;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * SeamKernels on the incubating Vector API, loaded by SeamKernels.load. Every lane computes what the scalar loop
+ * computes for its entry: the gradients are exact integers, the roots are correctly rounded either way and the
+ * minimum compares left, straight and right in the scalar order. The entries past the last full vector are left to
+ * the scalar loops. The back-pointers of a vector of seam table entries are packed a byte per lane into a long and
+ * written at once, as Java 17 boxes masks turned into bytes or bits
+ *
+ * @author Alexey Novakov
+ */
+final class VectorSeamKernels extends SeamKernels {
+    // at most 8 lanes, whose back-pointers fit into a long
+    private static final VectorSpecies<Double> DOUBLES = VectorSpecies.of(double.class,
+            VectorShape.forBitSize(Math.min(DoubleVector.SPECIES_PREFERRED.vectorBitSize(), 512)));
+    // as many float and int lanes as double lanes, which converts to doubles without splitting vectors; Java 17 also
+    // boxes some of the operations on wider float and int vectors
+    private static final VectorShape HALF = VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2);
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, HALF);
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, HALF);
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, DOUBLES.vectorShape());
+    private static final LongVector LEFT_EDGES = LongVector.broadcast(LONGS, 0x0ffL);
+    private static final LongVector EDGE_SHIFTS = LongVector.zero(LONGS).addIndex(8);  // lane k goes to byte k
+    private static final VarHandle EIGHT_EDGES = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // two lanes lose to the scalar loops, which SeamKernels.load falls back to
+    VectorSeamKernels() {
+        if (DOUBLES.length() < 4) throw new UnsupportedOperationException(DOUBLES + " is too narrow");
+    }
+
+    @Override
+    void squaredGradients(int[] color, int stride, int from, int to, double[] squares) {
+        int i = from;
+        for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+            IntVector ints = squaredGradients(color, stride, i);
+            ((DoubleVector) ints.convertShape(VectorOperators.I2D, DOUBLES, 0)).intoArray(squares, i);
+        }
+        super.squaredGradients(color, stride, i, to, squares);
+    }
+
+    @Override
+    void squaredGradients(int[] color, int stride, int from, int to, float[] squares) {
+        int i = from;
+        for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+            ((FloatVector) squaredGradients(color, stride, i).convert(VectorOperators.I2F, 0)).intoArray(squares, i);
+        }
+        super.squaredGradients(color, stride, i, to, squares);
+    }
+
+    @Override
+    void squaredGradients(int[] color, int stride, int from, int to, int[] squares) {
+        int i = from;
+        for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+            squaredGradients(color, stride, i).intoArray(squares, i);
+        }
+        super.squaredGradients(color, stride, i, to, squares);
+    }
+
+    private static IntVector squaredGradients(int[] color, int stride, int i) {
+        IntVector up = IntVector.fromArray(INTS, color, i - stride);
+        IntVector down = IntVector.fromArray(INTS, color, i + stride);
+        IntVector left = IntVector.fromArray(INTS, color, i - 1);
+        IntVector right = IntVector.fromArray(INTS, color, i + 1);
+        return deltaSquared(up, down).add(deltaSquared(left, right));
+    }
+
+    private static IntVector deltaSquared(IntVector x, IntVector y) {
+        IntVector r = channel(x, 16).sub(channel(y, 16));
+        IntVector g = channel(x, 8).sub(channel(y, 8));
+        IntVector b = x.and(0x0ff).sub(y.and(0x0ff));
+        return r.mul(r).add(g.mul(g)).add(b.mul(b));
+    }
+
+    private static IntVector channel(IntVector argb, int shift) {
+        return argb.lanewise(VectorOperators.LSHR, shift).and(0x0ff);
+    }
+
+    @Override
+    void sqrt(double[] squares, int from, int to) {
+        int i = from;
+        for (int end = from + DOUBLES.loopBound(to - from); i < end; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, squares, i).lanewise(VectorOperators.SQRT).intoArray(squares, i);
+        }
+        super.sqrt(squares, i, to);
+    }
+
+    @Override
+    void sqrt(float[] squares, int from, int to) {
+        int i = from;
+        for (int end = from + FLOATS.loopBound(to - from); i < end; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, squares, i).lanewise(VectorOperators.SQRT).intoArray(squares, i);
+        }
+        super.sqrt(squares, i, to);
+    }
+
+    @Override
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, double[] energies, int step, int from, int to) {
+        int c = from;
+        for (int end = from + DOUBLES.loopBound(to - from); c < end; c += DOUBLES.length()) {
+            relax(energyTo, edgeTo, prev, t, c, DoubleVector.fromArray(DOUBLES, energies, step + c));
+        }
+        super.relax(energyTo, edgeTo, prev, t, energies, step, c, to);
+    }
+
+    @Override
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, float[] energies, int step, int from, int to) {
+        int c = from;
+        for (int end = from + DOUBLES.loopBound(to - from); c < end; c += DOUBLES.length()) {
+            FloatVector floats = FloatVector.fromArray(FLOATS, energies, step + c);
+            relax(energyTo, edgeTo, prev, t, c, (DoubleVector) floats.convertShape(VectorOperators.F2D, DOUBLES, 0));
+        }
+        super.relax(energyTo, edgeTo, prev, t, energies, step, c, to);
+    }
+
+    @Override
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, int[] energies, int step, int from, int to) {
+        int c = from;
+        for (int end = from + DOUBLES.loopBound(to - from); c < end; c += DOUBLES.length()) {
+            IntVector ints = IntVector.fromArray(INTS, energies, step + c);
+            relax(energyTo, edgeTo, prev, t, c, (DoubleVector) ints.convertShape(VectorOperators.I2D, DOUBLES, 0));
+        }
+        super.relax(energyTo, edgeTo, prev, t, energies, step, c, to);
+    }
+
+    // one vector of entries starting at c, given the energies of their pixels
+    private static void relax(double[] energyTo, byte[] edgeTo, int prev, int t, int c, DoubleVector energies) {
+        DoubleVector min = DoubleVector.fromArray(DOUBLES, energyTo, prev + c - 1);
+        DoubleVector straight = DoubleVector.fromArray(DOUBLES, energyTo, prev + c);
+        DoubleVector right = DoubleVector.fromArray(DOUBLES, energyTo, prev + c + 1);
+        VectorMask<Double> isStraight = straight.lt(min);
+        min = min.blend(straight, isStraight);
+        VectorMask<Double> isRight = right.lt(min);
+        min = min.blend(right, isRight);
+        min.add(energies).intoArray(energyTo, t + c);
+        long edges = LEFT_EDGES.blend(0L, isStraight.cast(LONGS)).blend(1L, isRight.cast(LONGS))
+                .lanewise(VectorOperators.LSHL, EDGE_SHIFTS).reduceLanes(VectorOperators.OR);
+        if (DOUBLES.length() == Long.BYTES) {
+            EIGHT_EDGES.set(edgeTo, t + c, edges);
+        } else {
+            for (int k = 0; k < DOUBLES.length(); k++) edgeTo[t + c + k] = (byte) (edges >>> 8 * k);
+        }
+    }
+}
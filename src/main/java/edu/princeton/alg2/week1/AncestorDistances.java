@@ -0,0 +1,81 @@
+package edu.princeton.alg2.week1;
+
+import java.util.Arrays;
+
+/**
+ * All ancestors of a set of source vertices (the sources included) with their BFS distances, sorted by vertex
+ *
+ * @author Alexey Novakov
+ */
+final class AncestorDistances {
+    private final int[] vertices;
+    private final int[] distances;
+
+    AncestorDistances(int[] vertices, int[] distances) {
+        this.vertices = vertices;
+        this.distances = distances;
+    }
+
+    // pairs of vertex and distance in any order; a vertex listed more than once keeps its smallest distance
+    static AncestorDistances of(int[] vertices, int[] distances, int size) {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) packed[i] = (long) vertices[i] << 32 | distances[i];
+        Arrays.sort(packed);
+
+        int[] sortedVertices = new int[size];
+        int[] sortedDistances = new int[size];
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            int vertex = (int) (packed[i] >>> 32);
+            if (distinct > 0 && sortedVertices[distinct - 1] == vertex) continue;
+            sortedVertices[distinct] = vertex;
+            sortedDistances[distinct] = (int) packed[i];
+            distinct++;
+        }
+        if (distinct == size) return new AncestorDistances(sortedVertices, sortedDistances);
+        return new AncestorDistances(Arrays.copyOf(sortedVertices, distinct), Arrays.copyOf(sortedDistances, distinct));
+    }
+
+    void copyTo(int[] vertices, int[] distances, int offset) {
+        System.arraycopy(this.vertices, 0, vertices, offset, this.vertices.length);
+        System.arraycopy(this.distances, 0, distances, offset, this.distances.length);
+    }
+
+    int size() {
+        return vertices.length;
+    }
+
+    // vertex with the given index in sorted order
+    int vertex(int index) {
+        return vertices[index];
+    }
+
+    boolean contains(int vertex) {
+        return Arrays.binarySearch(vertices, vertex) >= 0;
+    }
+
+    // shortest ancestral path between the two source sets, found by merging their sorted ancestor lists;
+    // among several shortest paths the one through the smallest ancestor is taken, as SAP does
+    static ShortestAncestralPath path(AncestorDistances a, AncestorDistances b) {
+        int length = -1;
+        int ancestor = -1;
+        int i = 0;
+        int j = 0;
+        while (i < a.vertices.length && j < b.vertices.length) {
+            if (a.vertices[i] < b.vertices[j]) {
+                i++;
+            } else if (a.vertices[i] > b.vertices[j]) {
+                j++;
+            } else {
+                int candidate = a.distances[i] + b.distances[j];
+                if (ancestor < 0 || candidate < length) {
+                    length = candidate;
+                    ancestor = a.vertices[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return ancestor < 0 ? ShortestAncestralPath.NONE : new ShortestAncestralPath(length, ancestor);
+    }
+}
@@ -0,0 +1,171 @@
+package edu.princeton.alg2.week1;
+
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Distance-label index of a digraph: the label of a vertex lists every ancestor (hub) reachable from it,
+ * the vertex itself included, sorted by hub together with the BFS distance. A shortest ancestral path
+ * is then found by merging two sorted labels, without touching the graph.
+ * <p>
+ * Labels are exact rather than pruned: the ancestral distance d(v, x) + d(w, x) runs up from both ends,
+ * so the pruning rule of 2-hop labeling for undirected shortest paths would drop hubs that are needed.
+ * Hypernym chains are short, which keeps the full labels small. The labels are either heap arrays or read in
+ * place from a memory-mapped snapshot; only absolute buffer reads are used
+ *
+ * @author Alexey Novakov
+ */
+public final class AncestorLabels {
+    private final IntBuffer offsets;    // label of v is hubs/distances[offsets[v], offsets[v + 1])
+    private final IntBuffer hubs;
+    private final IntBuffer distances;
+    private final long buildNanos;
+
+    AncestorLabels(int[] offsets, int[] hubs, int[] distances, long buildNanos) {
+        this(IntBuffer.wrap(offsets), IntBuffer.wrap(hubs), IntBuffer.wrap(distances), buildNanos);
+    }
+
+    AncestorLabels(IntBuffer offsets, IntBuffer hubs, IntBuffer distances, long buildNanos) {
+        this.offsets = offsets;
+        this.hubs = hubs;
+        this.distances = distances;
+        this.buildNanos = buildNanos;
+    }
+
+    // one full upward BFS per vertex, run in parallel
+    static AncestorLabels build(SAP sap, int size) {
+        long start = System.nanoTime();
+        AncestorDistances[] labels = IntStream.range(0, size).parallel()
+                .mapToObj(v -> sap.ancestors(new int[]{v}))
+                .toArray(AncestorDistances[]::new);
+
+        int[] offsets = new int[size + 1];
+        for (int v = 0; v < size; v++) offsets[v + 1] = offsets[v] + labels[v].size();
+
+        int[] hubs = new int[offsets[size]];
+        int[] distances = new int[offsets[size]];
+        for (int v = 0; v < size; v++) labels[v].copyTo(hubs, distances, offsets[v]);
+        return new AncestorLabels(offsets, hubs, distances, System.nanoTime() - start);
+    }
+
+    // labels of the digraph of the given SAP, which is this one grown by new vertices and edges: only the new vertices
+    // and the stale ones, which reach the source of a new edge, are searched again and every other label is copied
+    AncestorLabels extend(SAP sap, boolean[] stale) {
+        long start = System.nanoTime();
+        int size = stale.length;
+        AncestorDistances[] searched = IntStream.range(0, size).parallel()
+                .mapToObj(v -> v >= vertices() || stale[v] ? sap.ancestors(new int[]{v}) : null)
+                .toArray(AncestorDistances[]::new);
+
+        int[] newOffsets = new int[size + 1];
+        for (int v = 0; v < size; v++) {
+            newOffsets[v + 1] = newOffsets[v] + (searched[v] != null ? searched[v].size() : offsets.get(v + 1) - offsets.get(v));
+        }
+
+        int[] newHubs = new int[newOffsets[size]];
+        int[] newDistances = new int[newOffsets[size]];
+        for (int v = 0; v < size; v++) {
+            if (searched[v] != null) {
+                searched[v].copyTo(newHubs, newDistances, newOffsets[v]);
+            } else {
+                copy(hubs, offsets.get(v), newHubs, newOffsets[v], offsets.get(v + 1) - offsets.get(v));
+                copy(distances, offsets.get(v), newDistances, newOffsets[v], offsets.get(v + 1) - offsets.get(v));
+            }
+        }
+        return new AncestorLabels(newOffsets, newHubs, newDistances, System.nanoTime() - start);
+    }
+
+    private static void copy(IntBuffer source, int from, int[] target, int at, int length) {
+        IntBuffer range = source.duplicate();
+        range.position(from);
+        range.get(target, at, length);
+    }
+
+    // number of labeled vertices
+    public int vertices() {
+        return offsets.limit() - 1;
+    }
+
+    // total number of (hub, distance) entries over all labels
+    public int entries() {
+        return hubs.limit();
+    }
+
+    // size of the label buffers, on the heap or mapped
+    public long sizeInBytes() {
+        return (long) Integer.BYTES * (offsets.limit() + hubs.limit() + distances.limit());
+    }
+
+    // time it took to build the index, to load it from a snapshot or to extend it by the last update
+    public long buildTimeMillis() {
+        return buildNanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AncestorLabels{vertices=%d, entries=%d, bytes=%d, buildTimeMillis=%d}",
+                vertices(), entries(), sizeInBytes(), buildTimeMillis());
+    }
+
+    IntBuffer offsets() {
+        return offsets.duplicate();
+    }
+
+    IntBuffer hubs() {
+        return hubs.duplicate();
+    }
+
+    IntBuffer distances() {
+        return distances.duplicate();
+    }
+
+    // merges the labels of v and w; ties are broken by the smallest hub, as SAP does
+    ShortestAncestralPath path(int v, int w) {
+        int length = -1;
+        int ancestor = -1;
+        int i = offsets.get(v);
+        int j = offsets.get(w);
+        int lastI = offsets.get(v + 1);
+        int lastJ = offsets.get(w + 1);
+        while (i < lastI && j < lastJ) {
+            int hubI = hubs.get(i);
+            int hubJ = hubs.get(j);
+            if (hubI < hubJ) {
+                i++;
+            } else if (hubI > hubJ) {
+                j++;
+            } else {
+                int candidate = distances.get(i) + distances.get(j);
+                if (ancestor < 0 || candidate < length) {
+                    length = candidate;
+                    ancestor = hubI;
+                }
+                i++;
+                j++;
+            }
+        }
+        return ancestor < 0 ? ShortestAncestralPath.NONE : new ShortestAncestralPath(length, ancestor);
+    }
+
+    ShortestAncestralPath path(int[] v, int[] w) {
+        if (v.length == 1 && w.length == 1) return path(v[0], w[0]);
+        return AncestorDistances.path(ancestors(v), ancestors(w));
+    }
+
+    // union of the labels of the given vertices, keeping the smallest distance of every hub
+    AncestorDistances ancestors(int[] v) {
+        int size = 0;
+        for (int s : v) size += offsets.get(s + 1) - offsets.get(s);
+
+        int[] allHubs = new int[size];
+        int[] allDistances = new int[size];
+        int n = 0;
+        for (int s : v) {
+            for (int i = offsets.get(s), last = offsets.get(s + 1); i < last; i++, n++) {
+                allHubs[n] = hubs.get(i);
+                allDistances[n] = distances.get(i);
+            }
+        }
+        return AncestorDistances.of(allHubs, allDistances, size);
+    }
+}
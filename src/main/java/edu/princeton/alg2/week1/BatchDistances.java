@@ -0,0 +1,94 @@
+package edu.princeton.alg2.week1;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Distances between many noun pairs at once: one BFS per distinct synset set, after which every pair
+ * is answered by merging two sorted ancestor lists. Both phases run on the common fork-join pool
+ *
+ * @author Alexey Novakov
+ */
+final class BatchDistances {
+    private static final int PARALLEL_THRESHOLD = 64;  // smaller batches are not worth splitting across cores
+
+    private final int[] setOf;                   // index of the distinct synset set of every input noun
+    private final AncestorDistances[] ancestors;  // ancestors of every distinct synset set
+
+    BatchDistances(SAP sap, SynsetDictionary dictionary, String[] nouns) {
+        Map<SynsetSet, Integer> distinct = new HashMap<>();
+        setOf = new int[nouns.length];
+        for (int i = 0; i < nouns.length; i++) {
+            SynsetSet set = new SynsetSet(dictionary.ids(nouns[i]));
+            Integer index = distinct.get(set);
+            if (index == null) {
+                index = distinct.size();
+                distinct.put(set, index);
+            }
+            setOf[i] = index;
+        }
+
+        int[][] sets = new int[distinct.size()][];
+        distinct.forEach((set, index) -> sets[index] = set.ids);
+        ancestors = range(sets.length)
+                .mapToObj(i -> sap.ancestors(sets[i]))
+                .toArray(AncestorDistances[]::new);
+    }
+
+    // distance between the i-th and j-th input nouns
+    int distance(int i, int j) {
+        if (setOf[i] == setOf[j]) return 0;
+        return AncestorDistances.path(ancestors[setOf[i]], ancestors[setOf[j]]).length();
+    }
+
+    // distances between nounsA[i] and nounsB[i]
+    static int[] distances(SAP sap, SynsetDictionary dictionary, String[] nounsA, String[] nounsB) {
+        String[] nouns = Arrays.copyOf(nounsA, nounsA.length + nounsB.length);
+        System.arraycopy(nounsB, 0, nouns, nounsA.length, nounsB.length);
+        BatchDistances batch = new BatchDistances(sap, dictionary, nouns);
+
+        int[] distances = new int[nounsA.length];
+        range(nounsA.length).forEach(i -> distances[i] = batch.distance(i, nounsA.length + i));
+        return distances;
+    }
+
+    // symmetric matrix of distances between every two nouns; only the upper triangle is computed
+    static int[][] distanceMatrix(SAP sap, SynsetDictionary dictionary, String[] nouns) {
+        BatchDistances batch = new BatchDistances(sap, dictionary, nouns);
+
+        int[][] matrix = new int[nouns.length][nouns.length];
+        range(nouns.length).forEach(i -> {
+            for (int j = i + 1; j < nouns.length; j++) matrix[i][j] = batch.distance(i, j);
+        });
+        for (int i = 0; i < nouns.length; i++)
+            for (int j = 0; j < i; j++) matrix[i][j] = matrix[j][i];
+        return matrix;
+    }
+
+    private static IntStream range(int size) {
+        IntStream range = IntStream.range(0, size);
+        return size < PARALLEL_THRESHOLD ? range : range.parallel();
+    }
+
+    private static final class SynsetSet {
+        private final int[] ids;
+        private final int hash;
+
+        SynsetSet(int[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof SynsetSet && Arrays.equals(ids, ((SynsetSet) o).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
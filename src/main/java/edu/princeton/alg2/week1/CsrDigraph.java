@@ -0,0 +1,330 @@
+package edu.princeton.alg2.week1;
+
+import edu.princeton.cs.algs4.Digraph;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable digraph in compressed sparse row form: the targets of the edges leaving vertex v
+ * are stored in targets[offsets[v]] .. targets[offsets[v + 1] - 1], either in heap arrays or read in place from
+ * the buffers of a memory-mapped snapshot. Extending it yields an overlay which shares these and lays out anew only
+ * the edges of the vertices which gained edges, so the accessors of a digraph that was never extended stay two
+ * array or buffer loads
+ *
+ * @author Alexey Novakov
+ */
+abstract class CsrDigraph {
+    private static final int SHARED_EDGES_PER_COPY = 16;   // copied edges are laid out anew past 1/16 of the shared ones
+
+    // digraph over the given heap arrays
+    static CsrDigraph of(int[] offsets, int[] targets) {
+        return new Heap(offsets, targets);
+    }
+
+    // digraph read in place from the given buffers, which are not copied; only absolute reads are used
+    static CsrDigraph of(IntBuffer offsets, IntBuffer targets) {
+        return new Mapped(offsets, targets);
+    }
+
+    // snapshot of the given digraph
+    static CsrDigraph of(Digraph digraph) {
+        int[] offsets = new int[digraph.V() + 1];
+        for (int v = 0; v < digraph.V(); v++) {
+            offsets[v + 1] = offsets[v] + digraph.outdegree(v);
+        }
+
+        int[] targets = new int[offsets[digraph.V()]];
+        for (int v = 0; v < digraph.V(); v++) {
+            int i = offsets[v];
+            for (int w : digraph.adj(v)) targets[i++] = w;
+        }
+        return of(offsets, targets);
+    }
+
+    // number of vertices
+    abstract int V();
+
+    // number of edges
+    abstract int E();
+
+    int outdegree(int v) {
+        return lastEdge(v) - firstEdge(v);
+    }
+
+    // index of the first edge leaving v
+    abstract int firstEdge(int v);
+
+    // index past the last edge leaving v
+    abstract int lastEdge(int v);
+
+    // head of the edge with the given index
+    abstract int target(int edge);
+
+    // digraph with every edge reversed
+    CsrDigraph reverse() {
+        Builder builder = new Builder(V());
+        for (int v = 0; v < V(); v++) {
+            for (int e = firstEdge(v), last = lastEdge(v); e < last; e++) builder.addEdge(target(e), v);
+        }
+        return builder.build();
+    }
+
+    // marks the vertices reachable from any of the sources, the sources included
+    boolean[] reachable(int[] sources) {
+        boolean[] marked = new boolean[V()];
+        int[] queue = new int[V()];
+        int tail = 0;
+        for (int s : sources) {
+            if (!marked[s]) {
+                marked[s] = true;
+                queue[tail++] = s;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int e = firstEdge(v), last = lastEdge(v); e < last; e++) {
+                if (!marked[target(e)]) {
+                    marked[target(e)] = true;
+                    queue[tail++] = target(e);
+                }
+            }
+        }
+        return marked;
+    }
+
+    // digraph grown to the given size with the first count edges from[i] -> to[i] appended after the edges of their
+    // sources. Copies only the edges of the sources and of the vertices extended before, until they outgrow their
+    // share of the edges of the base digraph, when all edges are laid out anew
+    CsrDigraph extend(int size, int[] from, int[] to, int count) {
+        if (size < V()) throw new IllegalArgumentException("Digraph is larger than the given size");
+        Builder.validateVertices(from, count, size);
+        Builder.validateVertices(to, count, size);
+
+        CsrDigraph base = this;
+        int[] previous = new int[0];
+        if (this instanceof Extended) {
+            base = ((Extended) this).base;
+            previous = ((Extended) this).extended;
+        }
+        int[] vertices = IntStream.concat(Arrays.stream(previous), Arrays.stream(from, 0, count)).sorted().distinct().toArray();
+        int[] newOffsets = new int[vertices.length + 1];
+        for (int k = 0; k < vertices.length; k++) newOffsets[k + 1] = vertices[k] < V() ? outdegree(vertices[k]) : 0;
+        for (int i = 0; i < count; i++) newOffsets[Arrays.binarySearch(vertices, from[i]) + 1]++;
+        for (int k = 0; k < vertices.length; k++) newOffsets[k + 1] += newOffsets[k];
+
+        int[] next = Arrays.copyOf(newOffsets, vertices.length);
+        int[] newTargets = new int[newOffsets[vertices.length]];
+        for (int k = 0; k < vertices.length && vertices[k] < V(); k++) {
+            for (int e = firstEdge(vertices[k]), last = lastEdge(vertices[k]); e < last; e++) newTargets[next[k]++] = target(e);
+        }
+        for (int i = 0; i < count; i++) newTargets[next[Arrays.binarySearch(vertices, from[i])]++] = to[i];
+
+        CsrDigraph digraph = new Extended(base, size, E() + count, vertices, newOffsets, newTargets);
+        return newTargets.length > base.E() / SHARED_EDGES_PER_COPY ? digraph.compact() : digraph;
+    }
+
+    // the same digraph with all edges in one compressed sparse row layout on the heap
+    private CsrDigraph compact() {
+        int[] newOffsets = new int[V() + 1];
+        int[] newTargets = new int[E()];
+        for (int v = 0; v < V(); v++) {
+            newOffsets[v + 1] = newOffsets[v];
+            for (int e = firstEdge(v), last = lastEdge(v); e < last; e++) newTargets[newOffsets[v + 1]++] = target(e);
+        }
+        return of(newOffsets, newTargets);
+    }
+
+    private static final class Heap extends CsrDigraph {
+        private final int[] offsets;
+        private final int[] targets;
+
+        private Heap(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        @Override
+        int V() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        int E() {
+            return targets.length;
+        }
+
+        @Override
+        int firstEdge(int v) {
+            return offsets[v];
+        }
+
+        @Override
+        int lastEdge(int v) {
+            return offsets[v + 1];
+        }
+
+        @Override
+        int target(int edge) {
+            return targets[edge];
+        }
+    }
+
+    private static final class Mapped extends CsrDigraph {
+        private final IntBuffer offsets;
+        private final IntBuffer targets;
+
+        private Mapped(IntBuffer offsets, IntBuffer targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        @Override
+        int V() {
+            return offsets.limit() - 1;
+        }
+
+        @Override
+        int E() {
+            return targets.limit();
+        }
+
+        @Override
+        int firstEdge(int v) {
+            return offsets.get(v);
+        }
+
+        @Override
+        int lastEdge(int v) {
+            return offsets.get(v + 1);
+        }
+
+        @Override
+        int target(int edge) {
+            return targets.get(edge);
+        }
+    }
+
+    /**
+     * Digraph of an updated WordNet: a heap or mapped base digraph plus the edges of the vertices which gained
+     * edges since, laid out anew and numbered after the edges of the base. Only extend creates it, so a WordNet
+     * that was never updated does not pay for the overlay checks
+     */
+    private static final class Extended extends CsrDigraph {
+        private final CsrDigraph base;
+        private final int size;
+        private final int edges;
+        private final int baseVertices;
+        private final int baseEdges;            // the first index of the overlay edges
+        private final long[] isExtended;        // bit v is set iff the edges of v were laid out anew
+        private final int[] extended;           // those vertices in increasing order,
+        private final int[] extendedOffsets;    // with their edges in extendedTargets[extendedOffsets[k]] ..
+        private final int[] extendedTargets;
+
+        private Extended(CsrDigraph base, int size, int edges, int[] extended, int[] extendedOffsets, int[] extendedTargets) {
+            this.base = base;
+            this.size = size;
+            this.edges = edges;
+            this.baseVertices = base.V();
+            this.baseEdges = base.E();
+            this.isExtended = new long[(size + 63) >>> 6];
+            for (int v : extended) isExtended[v >>> 6] |= 1L << v;
+            this.extended = extended;
+            this.extendedOffsets = extendedOffsets;
+            this.extendedTargets = extendedTargets;
+        }
+
+        @Override
+        int V() {
+            return size;
+        }
+
+        @Override
+        int E() {
+            return edges;
+        }
+
+        @Override
+        int firstEdge(int v) {
+            if ((isExtended[v >>> 6] & 1L << v) != 0) return baseEdges + extendedOffsets[Arrays.binarySearch(extended, v)];
+            return v < baseVertices ? base.firstEdge(v) : 0;
+        }
+
+        @Override
+        int lastEdge(int v) {
+            if ((isExtended[v >>> 6] & 1L << v) != 0) return baseEdges + extendedOffsets[Arrays.binarySearch(extended, v) + 1];
+            return v < baseVertices ? base.lastEdge(v) : 0;
+        }
+
+        @Override
+        int target(int edge) {
+            return edge < baseEdges ? base.target(edge) : extendedTargets[edge - baseEdges];
+        }
+    }
+
+    /**
+     * Collects edges in any order and lays them out by source vertex, keeping the insertion order per vertex
+     */
+    static final class Builder {
+        private final int size;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int edges;
+
+        Builder(int size) {
+            this.size = size;
+        }
+
+        Builder addEdge(int v, int w) {
+            validateVertex(v);
+            validateVertex(w);
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = v;
+            to[edges] = w;
+            edges++;
+            return this;
+        }
+
+        // appends all edges of the other builder, which must be of the same size
+        Builder addAll(Builder other) {
+            if (other.size != size) throw new IllegalArgumentException("Builders of different size");
+            if (edges + other.edges > from.length) {
+                from = Arrays.copyOf(from, edges + other.edges);
+                to = Arrays.copyOf(to, edges + other.edges);
+            }
+            System.arraycopy(other.from, 0, from, edges, other.edges);
+            System.arraycopy(other.to, 0, to, edges, other.edges);
+            edges += other.edges;
+            return this;
+        }
+
+        CsrDigraph build() {
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < edges; i++) offsets[from[i] + 1]++;
+            for (int v = 0; v < size; v++) offsets[v + 1] += offsets[v];
+
+            int[] next = Arrays.copyOf(offsets, size);
+            int[] targets = new int[edges];
+            for (int i = 0; i < edges; i++) targets[next[from[i]]++] = to[i];
+            return of(offsets, targets);
+        }
+
+        private void validateVertex(int v) {
+            validateVertex(v, size);
+        }
+
+        static void validateVertices(int[] vertices, int count, int size) {
+            for (int i = 0; i < count; i++) validateVertex(vertices[i], size);
+        }
+
+        private static void validateVertex(int v, int size) {
+            if (v < 0 || v >= size) {
+                throw new IndexOutOfBoundsException(String.format("vertex %d is not between 0 and %d", v, size - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package edu.princeton.alg2.week1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Synset dictionary of an updated WordNet: a compact base dictionary plus the synsets added or extended since,
+ * with the synset ids those updates gave to every noun. Lookups merge both, so an update costs time in proportion
+ * to its own size rather than to the whole dictionary. Once the updates outgrow a fraction of the base,
+ * everything is packed into a new compact dictionary
+ *
+ * @author Alexey Novakov
+ */
+final class DeltaSynsetDictionary implements SynsetDictionary {
+    private static final char SYNONYM_SEPARATOR = ' ';
+    private static final int COMPACTION_RATIO = 8;  // compact once more than 1/8 of the base synsets have changed
+
+    private final SynsetDictionary base;
+    private final int synsetCount;
+    private final Map<Integer, String> synsets;         // added synsets and extended base synsets by id
+    private final TreeMap<String, int[]> addedIds;      // sorted ids a noun gained by the updates, in code point order
+    private final int nounCount;
+
+    private DeltaSynsetDictionary(SynsetDictionary base, int synsetCount, Map<Integer, String> synsets,
+                                  TreeMap<String, int[]> addedIds) {
+        this.base = base;
+        this.synsetCount = synsetCount;
+        this.synsets = synsets;
+        this.addedIds = addedIds;
+        this.nounCount = base.nounCount() + (int) addedIds.keySet().stream().filter(noun -> !base.isNoun(noun)).count();
+    }
+
+    // the given dictionary with synsets replaced or appended: every changed synset maps to its whole new text,
+    // which has to contain all nouns of the old one. The given dictionary is left untouched
+    static SynsetDictionary extend(SynsetDictionary dictionary, int synsetCount, Map<Integer, String> changed) {
+        SynsetDictionary base = dictionary;
+        Map<Integer, String> synsets = new HashMap<>();
+        TreeMap<String, int[]> addedIds = new TreeMap<>(DeltaSynsetDictionary::compareCodePoints);
+        if (dictionary instanceof DeltaSynsetDictionary) {
+            DeltaSynsetDictionary delta = (DeltaSynsetDictionary) dictionary;
+            base = delta.base;
+            synsets.putAll(delta.synsets);
+            addedIds.putAll(delta.addedIds);
+        }
+
+        for (Map.Entry<Integer, String> synset : changed.entrySet()) {
+            int id = synset.getKey();
+            Set<String> oldNouns = id < dictionary.synsetCount() ? words(dictionary.synset(id)) : new HashSet<>();
+            for (String noun : words(synset.getValue())) {
+                if (!oldNouns.contains(noun)) addedIds.put(noun, insert(addedIds.get(noun), id));
+            }
+            synsets.put(id, synset.getValue());
+        }
+
+        if (synsets.size() * COMPACTION_RATIO > base.synsetCount()) {
+            String[] all = new String[synsetCount];
+            for (int id = 0; id < synsetCount; id++) {
+                String text = synsets.get(id);
+                all[id] = text != null ? text : base.synset(id);
+            }
+            return CompactSynsetDictionary.of(all);
+        }
+        return new DeltaSynsetDictionary(base, synsetCount, synsets, addedIds);
+    }
+
+    // distinct non-empty words of a synset
+    static Set<String> words(String synset) {
+        Set<String> words = new HashSet<>();
+        for (String word : synset.split(String.valueOf(SYNONYM_SEPARATOR))) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    // copy of the sorted ids with the id added
+    private static int[] insert(int[] ids, int id) {
+        if (ids == null) return new int[]{id};
+
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) return ids;
+        int[] extended = new int[ids.length + 1];
+        int at = -index - 1;
+        System.arraycopy(ids, 0, extended, 0, at);
+        extended[at] = id;
+        System.arraycopy(ids, at, extended, at + 1, ids.length - at);
+        return extended;
+    }
+
+    // code point order, the order of the compact dictionary
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) return Integer.compare(x, y);
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    @Override
+    public int synsetCount() {
+        return synsetCount;
+    }
+
+    @Override
+    public String synset(int id) {
+        String synset = synsets.get(id);
+        return synset != null ? synset : base.synset(id);
+    }
+
+    @Override
+    public int nounCount() {
+        return nounCount;
+    }
+
+    @Override
+    public boolean isNoun(String noun) {
+        return addedIds.containsKey(noun) || base.isNoun(noun);
+    }
+
+    @Override
+    public int[] ids(String noun) {
+        int[] ids = base.ids(noun);
+        int[] added = addedIds.get(noun);
+        if (added == null) return ids;
+        if (ids == null) return added.clone();
+
+        int[] merged = Arrays.copyOf(ids, ids.length + added.length);
+        System.arraycopy(added, 0, merged, ids.length, added.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    @Override
+    public Iterable<String> nouns() {
+        return () -> new Iterator<String>() {
+            private final Iterator<String> baseNouns = base.nouns().iterator();
+            private final Iterator<String> newNouns = addedIds.keySet().stream().filter(noun -> !base.isNoun(noun)).iterator();
+
+            @Override
+            public boolean hasNext() {
+                return baseNouns.hasNext() || newNouns.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (baseNouns.hasNext()) return baseNouns.next();
+                if (newNouns.hasNext()) return newNouns.next();
+                throw new NoSuchElementException();
+            }
+        };
+    }
+
+    @Override
+    public List<String> nounsWithPrefix(String prefix, int limit) {
+        List<String> nouns = new ArrayList<>(base.nounsWithPrefix(prefix, limit));
+        for (String noun : addedIds.tailMap(prefix).keySet()) {
+            if (!noun.startsWith(prefix)) break;
+            if (!base.isNoun(noun)) nouns.add(noun);
+        }
+        nouns.sort(DeltaSynsetDictionary::compareCodePoints);
+        return nouns.size() > limit ? new ArrayList<>(nouns.subList(0, limit)) : nouns;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long delta = 0;
+        for (String synset : synsets.values()) delta += Integer.BYTES + Character.BYTES * synset.length();
+        for (Map.Entry<String, int[]> ids : addedIds.entrySet()) {
+            delta += Character.BYTES * ids.getKey().length() + Integer.BYTES * ids.getValue().length;
+        }
+        return base.sizeInBytes() + delta;
+    }
+}
@@ -0,0 +1,178 @@
+package edu.princeton.alg2.week1;
+
+import java.util.Arrays;
+
+/**
+ * Compressed transitive closure of a rooted DAG by interval labeling. A depth-first search from the root along
+ * reversed (hyponym) edges numbers the vertices in postorder; the hyponyms of a vertex in that spanning tree then
+ * occupy one interval of numbers ending at its own. Every vertex keeps the sorted, disjoint intervals covering all
+ * of its hyponyms, the tree interval merged with the intervals of its direct hyponyms, so v reaches w iff the number
+ * of v lies in an interval of w: a binary search over a few intervals. Hypernym DAGs are close to trees, which keeps
+ * the number of intervals per vertex small
+ *
+ * @author Alexey Novakov
+ */
+public final class HypernymClosure {
+    private final int[] post;       // postorder number of every vertex
+    private final int[] vertexAt;   // vertex with the given postorder number
+    private final int[] offsets;    // intervals of the vertex numbered p are [starts[i], ends[i]], offsets[p] <= i < offsets[p + 1]
+    private final int[] starts;
+    private final int[] ends;
+    private final long buildNanos;
+
+    private HypernymClosure(int[] post, int[] vertexAt, int[] offsets, int[] starts, int[] ends, long buildNanos) {
+        this.post = post;
+        this.vertexAt = vertexAt;
+        this.offsets = offsets;
+        this.starts = starts;
+        this.ends = ends;
+        this.buildNanos = buildNanos;
+    }
+
+    // closure of a digraph with edges pointing to hyponyms, in which the root reaches every vertex
+    static HypernymClosure build(CsrDigraph hyponyms, int root) {
+        long start = System.nanoTime();
+        int size = hyponyms.V();
+
+        // iterative DFS, so that long hypernym chains cannot overflow the stack
+        int[] post = new int[size];
+        int[] low = new int[size];
+        int[] vertexAt = new int[size];
+        int[] stack = new int[size];
+        int[] nextEdge = new int[size];
+        boolean[] visited = new boolean[size];
+        int top = 0;
+        int counter = 0;
+        visited[root] = true;
+        nextEdge[root] = hyponyms.firstEdge(root);
+        stack[top++] = root;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (nextEdge[v] < hyponyms.lastEdge(v)) {
+                int x = hyponyms.target(nextEdge[v]++);
+                if (!visited[x]) {
+                    visited[x] = true;
+                    low[x] = counter;
+                    nextEdge[x] = hyponyms.firstEdge(x);
+                    stack[top++] = x;
+                }
+            } else {
+                post[v] = counter;
+                vertexAt[counter++] = v;
+                top--;
+            }
+        }
+        if (counter != size) throw new IllegalArgumentException("Not every vertex reaches the root " + root);
+
+        // in a DAG every hyponym gets a smaller number than its hypernyms, so postorder visits hyponyms first.
+        // Intervals are laid out in postorder as well
+        int[] offsets = new int[size + 1];
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        for (int p = 0; p < size; p++) {
+            int v = vertexAt[p];
+            int count = 1;
+            for (int e = hyponyms.firstEdge(v); e < hyponyms.lastEdge(v); e++) {
+                int x = post[hyponyms.target(e)];
+                count += offsets[x + 1] - offsets[x];
+            }
+
+            long[] intervals = new long[count];
+            int n = 0;
+            intervals[n++] = (long) low[v] << 32 | p;
+            for (int e = hyponyms.firstEdge(v); e < hyponyms.lastEdge(v); e++) {
+                int x = post[hyponyms.target(e)];
+                for (int i = offsets[x]; i < offsets[x + 1]; i++) intervals[n++] = (long) starts[i] << 32 | ends[i];
+            }
+            Arrays.sort(intervals);
+
+            int total = offsets[p];
+            if (total + count > starts.length) {
+                starts = Arrays.copyOf(starts, Math.max(starts.length * 2, total + count));
+                ends = Arrays.copyOf(ends, starts.length);
+            }
+            for (long interval : intervals) {
+                int first = (int) (interval >>> 32);
+                int last = (int) interval;
+                if (total > offsets[p] && first <= ends[total - 1] + 1) {
+                    ends[total - 1] = Math.max(ends[total - 1], last);  // overlapping or adjacent: merge
+                } else {
+                    starts[total] = first;
+                    ends[total++] = last;
+                }
+            }
+            offsets[p + 1] = total;
+        }
+        return new HypernymClosure(post, vertexAt, offsets, Arrays.copyOf(starts, offsets[size]),
+                Arrays.copyOf(ends, offsets[size]), System.nanoTime() - start);
+    }
+
+    // true if w is v or one of its hypernyms
+    boolean reaches(int v, int w) {
+        int p = post[v];
+        int q = post[w];
+        if (p > q) return false;
+
+        // last interval of w starting at or before p
+        int lo = offsets[q];
+        int hi = offsets[q + 1] - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= p) lo = mid;
+            else hi = mid - 1;
+        }
+        return starts[lo] <= p && p <= ends[lo];
+    }
+
+    // hyponyms of the given vertices, transitively, without the vertices themselves unless one is a hyponym
+    // of another; sorted by vertex
+    int[] hyponyms(int[] vertices) {
+        int count = 0;
+        for (int v : vertices) {
+            for (int i = offsets[post[v]]; i < offsets[post[v] + 1]; i++) count += ends[i] - starts[i] + 1;
+        }
+
+        int[] hyponyms = new int[count];
+        int n = 0;
+        for (int v : vertices) {
+            for (int i = offsets[post[v]]; i < offsets[post[v] + 1]; i++) {
+                for (int p = starts[i]; p <= ends[i]; p++) {
+                    if (vertexAt[p] != v) hyponyms[n++] = vertexAt[p];
+                }
+            }
+        }
+        Arrays.sort(hyponyms, 0, n);
+
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || hyponyms[distinct - 1] != hyponyms[i]) hyponyms[distinct++] = hyponyms[i];
+        }
+        return Arrays.copyOf(hyponyms, distinct);
+    }
+
+    // number of vertices
+    public int vertices() {
+        return post.length;
+    }
+
+    // total number of intervals over all vertices
+    public int intervals() {
+        return starts.length;
+    }
+
+    // heap size of the index arrays
+    public long sizeInBytes() {
+        return (long) Integer.BYTES * (post.length + vertexAt.length + offsets.length + starts.length + ends.length);
+    }
+
+    // time it took to build the index
+    public long buildTimeMillis() {
+        return buildNanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HypernymClosure{vertices=%d, intervals=%d, bytes=%d, buildTimeMillis=%d}",
+                vertices(), intervals(), sizeInBytes(), buildTimeMillis());
+    }
+}
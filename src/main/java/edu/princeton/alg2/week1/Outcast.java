@@ -1,5 +1,12 @@
 package edu.princeton.alg2.week1;
 
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Stream;
+
 /**
  * @author Alexey Novakov
  */
@@ -13,19 +20,42 @@ public class Outcast {
 
     // given an array of WordNet nouns, return an outcast
     public String outcast(String[] nouns) {
+        // one BFS per noun and one merge per unordered pair, instead of a traversal per ordered pair
+        int[][] distances = wordnet.distanceMatrix(nouns);
+
         String outcast = "";
         int maxDistance = 0;
-        for (String noun : nouns) {
-            int distance = 0;
-            for (String a : nouns) {
-                distance += wordnet.distance(noun, a);
-            }
+        for (int i = 0; i < nouns.length; i++) {
+            int distance = Arrays.stream(distances[i]).sum();
 
             if (distance > maxDistance) {
                 maxDistance = distance;
-                outcast = noun;
+                outcast = nouns[i];
             }
         }
         return outcast;
     }
+
+    // outcast of every input, in input order; a parallel stream of inputs is processed in parallel
+    public Stream<String> outcasts(Stream<String[]> inputs) {
+        Objects.requireNonNull(inputs, "Inputs should be defined");
+        return inputs.map(this::outcast);
+    }
+
+    // takes synsets and hypernyms files followed by any number of outcast files, one set of nouns per file
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            StdOut.println("Usage:\njava Outcast [synsets] [hypernyms] [outcast file]...");
+            return;
+        }
+
+        Outcast outcast = new Outcast(new WordNet(args[0], args[1]));
+        String[] files = Arrays.copyOfRange(args, 2, args.length);
+        String[] outcasts = outcast.outcasts(Arrays.stream(files).parallel().map(file -> new In(file).readAllStrings()))
+                .toArray(String[]::new);
+
+        for (int i = 0; i < files.length; i++) {
+            StdOut.println(files[i] + ": " + outcasts[i]);
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package edu.princeton.alg2.week1;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, thread-safe LRU cache of shortest ancestral paths keyed by an unordered pair of synset id sets.
+ * All entries belong to one WordNet version: lookups and insertions made on behalf of another version miss or
+ * are dropped, and moving to a new version removes only the entries that the update affected
+ *
+ * @author Alexey Novakov
+ */
+public final class QueryCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, ShortestAncestralPath> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long version;
+
+    QueryCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Cache capacity should be positive");
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, ShortestAncestralPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ShortestAncestralPath> eldest) {
+                if (size() > QueryCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // cached path between synset sets a and b in any order, valid in the given version; null if absent
+    synchronized ShortestAncestralPath get(int[] a, int[] b, long version) {
+        ShortestAncestralPath path = version == this.version ? entries.get(new Key(a, b)) : null;
+        if (path == null) misses++;
+        else hits++;
+        return path;
+    }
+
+    // paths computed on an outdated version are not cached
+    synchronized void put(int[] a, int[] b, ShortestAncestralPath path, long version) {
+        if (version == this.version) entries.put(new Key(a, b), path);
+    }
+
+    // moves the cache to a new version, removing the pairs of which either synset set is affected by the update
+    synchronized void advance(long version, Predicate<int[]> affected) {
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            if (affected.test(key.first) || affected.test(key.second)) {
+                keys.remove();
+                invalidations++;
+            }
+        }
+        this.version = version;
+    }
+
+    // maximum number of cached pairs
+    public int capacity() {
+        return capacity;
+    }
+
+    // number of currently cached pairs
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    // number of pairs removed because an update affected them
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryCache{capacity=%d, size=%d, hits=%d, misses=%d, evictions=%d, invalidations=%d}",
+                capacity, entries.size(), hits, misses, evictions, invalidations);
+    }
+
+    // symmetric key: both arrays are expected to be sorted, and the pair is ordered so that (a, b) equals (b, a)
+    private static final class Key {
+        private final int[] first;
+        private final int[] second;
+        private final int hash;
+
+        Key(int[] a, int[] b) {
+            boolean ordered = compare(a, b) <= 0;
+            first = ordered ? a : b;
+            second = ordered ? b : a;
+            hash = 31 * Arrays.hashCode(first) + Arrays.hashCode(second);
+        }
+
+        private static int compare(int[] a, int[] b) {
+            for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+            }
+            return Integer.compare(a.length, b.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && Arrays.equals(first, key.first) && Arrays.equals(second, key.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
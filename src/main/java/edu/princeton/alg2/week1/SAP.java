@@ -1,72 +1,85 @@
 package edu.princeton.alg2.week1;
 
-import edu.princeton.cs.algs4.BreadthFirstDirectedPaths;
+import edu.princeton.alg2.week1.metrics.QueryStats;
+import edu.princeton.alg2.week1.metrics.SapMetrics;
 import edu.princeton.cs.algs4.Digraph;
 
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.stream.IntStream;
 
 /**
+ * Safe for concurrent queries: the digraph is an immutable snapshot and every thread searches in its own workspace.
+ * Workspaces belong to threads rather than to SAPs and are sized to the largest digraph a thread has searched, so
+ * a thread that queried an SAP keeps neither the SAP nor its digraph alive.
+ *
  * @author Alexey Novakov
  */
 public class SAP {
-    private Digraph digraph;
+    private static final int UNREACHED = -1;
+
+    // per-thread search state, so that concurrent callers can query the same SAP; it references no digraph
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private final CsrDigraph digraph;
+    // optional distance-label index; when present, queries merge labels instead of running BFS
+    private volatile AncestorLabels labels;
+    // optional receiver of per-query statistics; when null, queries measure nothing
+    private volatile SapMetrics metrics;
 
     // constructor takes a digraph (not necessarily a DAG)
     public SAP(Digraph digraph) {
-        Objects.requireNonNull(digraph);
-        this.digraph = copy(digraph);
+        this(CsrDigraph.of(Objects.requireNonNull(digraph)));
     }
 
-    private Digraph copy(Digraph digraph) {
-        Digraph copy = new Digraph(digraph.V());
-        IntStream.range(0, digraph.V()).parallel().forEach(v -> digraph.adj(v).forEach(w -> copy.addEdge(v, w)));
-        return copy;
+    // takes an immutable snapshot, which is shared rather than copied
+    SAP(CsrDigraph digraph) {
+        this.digraph = digraph;
     }
 
-    // length of shortest ancestral path between v and w; -1 if no such path
-    public int length(int v, int w) {
-        validateVertex(Arrays.asList(v, w));
-        return findDistance(new BreadthFirstDirectedPaths(digraph, v), new BreadthFirstDirectedPaths(digraph, w));
+    CsrDigraph digraph() {
+        return digraph;
     }
 
-    private int findDistance(BreadthFirstDirectedPaths bfsPathsV, BreadthFirstDirectedPaths bfsPathsW) {
-        int minDistance = -1;
-        for (int i = 0; i < digraph.V(); i++) {
-            if (bfsPathsV.hasPathTo(i) && bfsPathsW.hasPathTo(i)) {
-                int distance = bfsPathsV.distTo(i) + bfsPathsW.distTo(i);
+    // precomputes the distance labels of all vertices, so that later queries need no BFS; returns the index
+    public AncestorLabels buildIndex() {
+        AncestorLabels index = AncestorLabels.build(this, digraph.V());
+        labels = index;
+        return index;
+    }
 
-                if (minDistance < 0 || distance < minDistance) {
-                    minDistance = distance;
-                }
-            }
-        }
-        return minDistance;
+    // distance-label index; null if it was not built
+    public AncestorLabels index() {
+        return labels;
     }
 
-    // a common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path
-    public int ancestor(int v, int w) {
-        validateVertex(Arrays.asList(v, w));
-        return findAncestor(new BreadthFirstDirectedPaths(digraph, v), new BreadthFirstDirectedPaths(digraph, w));
+    // installs labels built earlier for the same digraph, e.g. loaded from a snapshot
+    void index(AncestorLabels labels) {
+        if (labels.vertices() != digraph.V()) throw new IllegalArgumentException("Labels do not match the digraph");
+        this.labels = labels;
     }
 
-    private int findAncestor(BreadthFirstDirectedPaths bfsPathsV, BreadthFirstDirectedPaths bfsPathsW) {
-        int minDistance = -1;
-        int ancestor = -1;
+    // reports statistics of every following query to the given metrics; null turns reporting off
+    public void metrics(SapMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-        for (int i = 0; i < digraph.V(); i++) {
-            if (bfsPathsV.hasPathTo(i) && bfsPathsW.hasPathTo(i)) {
-                int distance = bfsPathsV.distTo(i) + bfsPathsW.distTo(i);
+    // receiver of per-query statistics; null if reporting is off
+    public SapMetrics metrics() {
+        return metrics;
+    }
 
-                if (minDistance < 0 || distance < minDistance) {
-                    minDistance = distance;
-                    ancestor = i;
-                }
-            }
-        }
+    // length of shortest ancestral path between v and w; -1 if no such path
+    public int length(int v, int w) {
+        validateVertex(Arrays.asList(v, w));
+        AncestorLabels index = labels;
+        return index != null ? lookup(index, v, w).length() : search(v, w).length;
+    }
 
-        return ancestor;
+    // a common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path
+    public int ancestor(int v, int w) {
+        validateVertex(Arrays.asList(v, w));
+        AncestorLabels index = labels;
+        return index != null ? lookup(index, v, w).ancestor() : search(v, w).ancestor;
     }
 
     // length of shortest ancestral path between any vertex in v and any vertex in w; -1 if no such path
@@ -75,7 +88,8 @@ public class SAP {
         validateVertex(v);
         validateVertex(w);
 
-        return findDistance(new BreadthFirstDirectedPaths(digraph, v), new BreadthFirstDirectedPaths(digraph, w));
+        AncestorLabels index = labels;
+        return index != null ? lookup(index, toArray(v), toArray(w)).length() : search(v, w).length;
     }
 
     // a common ancestor that participates in shortest ancestral path; -1 if no such path
@@ -84,7 +98,100 @@ public class SAP {
         validateVertex(v);
         validateVertex(w);
 
-        return findAncestor(new BreadthFirstDirectedPaths(digraph, v), new BreadthFirstDirectedPaths(digraph, w));
+        AncestorLabels index = labels;
+        return index != null ? lookup(index, toArray(v), toArray(w)).ancestor() : search(v, w).ancestor;
+    }
+
+    // length and ancestor of shortest ancestral path between any vertex in v and any vertex in w, from one traversal;
+    // vertices are expected to be valid
+    ShortestAncestralPath path(int[] v, int[] w) {
+        AncestorLabels index = labels;
+        if (index != null) return lookup(index, v, w);
+
+        SapMetrics sink = metrics;
+        long start = sink != null ? System.nanoTime() : 0;
+        Workspace workspace = workspace();
+        for (int s : v) workspace.sideV.visit(s, 0);
+        for (int s : w) workspace.sideW.visit(s, 0);
+        workspace.run(digraph);
+        if (sink != null) sink.record(workspace.stats(digraph, System.nanoTime() - start));
+        return workspace.ancestor == UNREACHED
+                ? ShortestAncestralPath.NONE
+                : new ShortestAncestralPath(workspace.length, workspace.ancestor);
+    }
+
+    // all ancestors of the given vertices with their distances, from one full BFS; vertices are expected to be valid
+    AncestorDistances ancestors(int[] v) {
+        AncestorLabels index = labels;
+        if (index != null) return index.ancestors(v);
+
+        Workspace workspace = workspace();
+        for (int s : v) workspace.sideV.visit(s, 0);
+        workspace.run(digraph);  // nothing to meet on the other side, so the search is never cut short
+
+        Workspace.Side side = workspace.sideV;
+        int[] distances = new int[side.tail];
+        for (int i = 0; i < side.tail; i++) distances[i] = side.distTo[side.queue[i]];
+        return AncestorDistances.of(side.queue, distances, side.tail);
+    }
+
+    private Workspace search(int v, int w) {
+        SapMetrics sink = metrics;
+        long start = sink != null ? System.nanoTime() : 0;
+        Workspace workspace = workspace();
+        workspace.sideV.visit(v, 0);
+        workspace.sideW.visit(w, 0);
+        workspace.run(digraph);
+        if (sink != null) sink.record(workspace.stats(digraph, System.nanoTime() - start));
+        return workspace;
+    }
+
+    private Workspace search(Iterable<Integer> v, Iterable<Integer> w) {
+        SapMetrics sink = metrics;
+        long start = sink != null ? System.nanoTime() : 0;
+        Workspace workspace = workspace();
+        for (int s : v) workspace.sideV.visit(s, 0);
+        for (int s : w) workspace.sideW.visit(s, 0);
+        workspace.run(digraph);
+        if (sink != null) sink.record(workspace.stats(digraph, System.nanoTime() - start));
+        return workspace;
+    }
+
+    // workspace of the current thread, reset for a search of this digraph
+    private Workspace workspace() {
+        Workspace workspace = WORKSPACES.get();
+        workspace.reset(digraph.V());
+        return workspace;
+    }
+
+    private ShortestAncestralPath lookup(AncestorLabels index, int v, int w) {
+        SapMetrics sink = metrics;
+        if (sink == null) return index.path(v, w);
+
+        long start = System.nanoTime();
+        ShortestAncestralPath path = index.path(v, w);
+        sink.record(QueryStats.indexed(System.nanoTime() - start));
+        return path;
+    }
+
+    private ShortestAncestralPath lookup(AncestorLabels index, int[] v, int[] w) {
+        SapMetrics sink = metrics;
+        if (sink == null) return index.path(v, w);
+
+        long start = System.nanoTime();
+        ShortestAncestralPath path = index.path(v, w);
+        sink.record(QueryStats.indexed(System.nanoTime() - start));
+        return path;
+    }
+
+    private int[] toArray(Iterable<Integer> vertices) {
+        int size = 0;
+        int[] array = new int[4];
+        for (int v : vertices) {
+            if (size == array.length) array = Arrays.copyOf(array, size * 2);
+            array[size++] = v;
+        }
+        return Arrays.copyOf(array, size);
     }
 
     private void validateVertex(Iterable<Integer> vertices) {
@@ -98,4 +205,142 @@ public class SAP {
         Objects.requireNonNull(v);
         Objects.requireNonNull(w);
     }
+
+    // Preallocated state of one ancestral search. Visit marks are stamped with the epoch of the search,
+    // so starting a new search costs O(1) instead of clearing arrays of size V. Not thread-safe: one per thread.
+    // Static, so that it holds no reference to an SAP; the digraph is passed to every search instead
+    private static final class Workspace {
+        private final Side sideV = new Side(this);
+        private final Side sideW = new Side(this);
+        private int epoch;
+        private int length;
+        private int ancestor;
+
+        Workspace() {
+            sideV.other = sideW;
+            sideW.other = sideV;
+        }
+
+        // prepares a search of a digraph with the given number of vertices, growing the arrays if it is the largest yet
+        void reset(int size) {
+            if (sideV.marked.length < size) {
+                sideV.resize(size);
+                sideW.resize(size);
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                sideV.clearMarks();
+                sideW.clearMarks();
+                epoch = 1;
+            }
+            sideV.head = sideV.tail = 0;
+            sideW.head = sideW.tail = 0;
+            sideV.cut = sideW.cut = UNREACHED;
+            length = UNREACHED;
+            ancestor = UNREACHED;
+        }
+
+        // interleaved BFS from both source sets, one depth level per side at a time;
+        // a side stops expanding once its next level cannot produce a path shorter than (or as short as) the best one found.
+        // Ties are broken by the smallest ancestor id, exactly as a full scan over all vertices would do
+        void run(CsrDigraph digraph) {
+            while (!sideV.isEmpty() || !sideW.isEmpty()) {
+                sideV.expandLevel(digraph);
+                sideW.expandLevel(digraph);
+            }
+        }
+
+        // statistics of the search that just ran, derived from the queues, so the search itself counts nothing
+        QueryStats stats(CsrDigraph digraph, long nanos) {
+            return new QueryStats(nanos, sideV.tail + sideW.tail, sideV.edgesScanned(digraph) + sideW.edgesScanned(digraph),
+                    Math.max(sideV.maxFrontier(), sideW.maxFrontier()), sideV.cut != UNREACHED || sideW.cut != UNREACHED,
+                    false);
+        }
+
+        void offer(int candidate, int candidateLength) {
+            if (ancestor == UNREACHED || candidateLength < length || candidateLength == length && candidate < ancestor) {
+                length = candidateLength;
+                ancestor = candidate;
+            }
+        }
+
+        // BFS state of one source set: epoch-stamped marks, distances and a FIFO queue of vertices
+        private static final class Side {
+            private final Workspace workspace;
+            private int[] marked = new int[0];
+            private int[] distTo = new int[0];
+            private int[] queue = new int[0];
+            private int head;
+            private int tail;
+            private int cut;  // number of expanded vertices if the side stopped early, UNREACHED otherwise
+            private Side other;
+
+            Side(Workspace workspace) {
+                this.workspace = workspace;
+            }
+
+            void resize(int size) {
+                marked = new int[size];
+                distTo = new int[size];
+                queue = new int[size];
+            }
+
+            boolean isEmpty() {
+                return head == tail;
+            }
+
+            boolean isMarked(int x) {
+                return marked[x] == workspace.epoch;
+            }
+
+            void clearMarks() {
+                Arrays.fill(marked, 0);
+            }
+
+            void visit(int x, int distance) {
+                if (isMarked(x)) return;
+
+                marked[x] = workspace.epoch;
+                distTo[x] = distance;
+                queue[tail++] = x;
+                if (other.isMarked(x)) workspace.offer(x, distance + other.distTo[x]);
+            }
+
+            long edgesScanned(CsrDigraph digraph) {
+                long edges = 0;
+                for (int i = 0, expanded = cut != UNREACHED ? cut : head; i < expanded; i++) edges += digraph.outdegree(queue[i]);
+                return edges;
+            }
+
+            // largest number of queued vertices at one depth
+            int maxFrontier() {
+                int max = 0;
+                for (int i = 0, start = 0; i < tail; i++) {
+                    if (i + 1 == tail || distTo[queue[i + 1]] != distTo[queue[start]]) {
+                        max = Math.max(max, i + 1 - start);
+                        start = i + 1;
+                    }
+                }
+                return max;
+            }
+
+            void expandLevel(CsrDigraph digraph) {
+                if (isEmpty()) return;
+
+                int depth = distTo[queue[head]];
+                if (workspace.ancestor != UNREACHED && depth + 1 > workspace.length) {
+                    cut = head;
+                    head = tail;  // early termination: every further ancestor is farther than the best one
+                    return;
+                }
+
+                while (head < tail && distTo[queue[head]] == depth) {
+                    int v = queue[head++];
+                    for (int e = digraph.firstEdge(v), last = digraph.lastEdge(v); e < last; e++) {
+                        visit(digraph.target(e), depth + 1);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package edu.princeton.alg2.week1;
+
+/**
+ * Length and common ancestor of a shortest ancestral path, both taken from a single SAP traversal
+ *
+ * @author Alexey Novakov
+ */
+final class ShortestAncestralPath {
+    static final ShortestAncestralPath NONE = new ShortestAncestralPath(-1, -1);
+
+    private final int length;
+    private final int ancestor;
+
+    ShortestAncestralPath(int length, int ancestor) {
+        this.length = length;
+        this.ancestor = ancestor;
+    }
+
+    // length of the path; -1 if no such path
+    int length() {
+        return length;
+    }
+
+    // common ancestor participating in the path; -1 if no such path
+    int ancestor() {
+        return ancestor;
+    }
+}
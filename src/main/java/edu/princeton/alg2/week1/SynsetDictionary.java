@@ -0,0 +1,33 @@
+package edu.princeton.alg2.week1;
+
+import java.util.List;
+
+/**
+ * Synsets by id and the sorted synset ids of every noun
+ *
+ * @author Alexey Novakov
+ */
+interface SynsetDictionary {
+
+    // number of synsets; ids are between 0 and synsetCount() - 1
+    int synsetCount();
+
+    // synset (second field of synsets.txt) with the given id
+    String synset(int id);
+
+    // number of distinct nouns
+    int nounCount();
+
+    boolean isNoun(String noun);
+
+    // sorted ids of the synsets containing the noun; null if it is not a noun
+    int[] ids(String noun);
+
+    Iterable<String> nouns();
+
+    // up to limit nouns starting with the prefix, in code point order
+    List<String> nounsWithPrefix(String prefix, int limit);
+
+    // memory held by the dictionary, on or off the heap
+    long sizeInBytes();
+}
@@ -0,0 +1,202 @@
+package edu.princeton.alg2.week1;
+
+import edu.princeton.cs.algs4.In;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Parses synsets and hypernyms files straight from memory-mapped bytes, without regular expressions or
+ * per-field strings. Inputs larger than a chunk are split at line boundaries and parsed in parallel
+ *
+ * @author Alexey Novakov
+ */
+final class WordNetLoader {
+    private static final byte FIELD_SEPARATOR = ',';
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private WordNetLoader() {
+    }
+
+    // synsets indexed by synset id: the second field of every line of the synsets file
+    static String[] loadSynsets(String synsetsPath) {
+        ByteBuffer bytes = read(synsetsPath);
+        SynsetChunk[] chunks = IntStream.range(0, chunkCount(bytes)).parallel()
+                .mapToObj(i -> parseSynsets(bytes, chunkStart(bytes, i), chunkStart(bytes, i + 1)))
+                .toArray(SynsetChunk[]::new);
+
+        int size = Arrays.stream(chunks).mapToInt(chunk -> chunk.size).sum();
+        String[] synsets = new String[size];
+        for (SynsetChunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                int id = chunk.ids[i];
+                if (id >= size || synsets[id] != null) {
+                    throw new IllegalArgumentException(String.format("Synset id %d is duplicated or not between 0 and %d", id, size - 1));
+                }
+                synsets[id] = chunk.synsets[i];
+            }
+        }
+        return synsets;
+    }
+
+    // digraph with an edge from every synset to each of its hypernyms
+    static CsrDigraph loadHypernyms(String hypernymsPath, int size) {
+        ByteBuffer bytes = read(hypernymsPath);
+        CsrDigraph.Builder[] chunks = IntStream.range(0, chunkCount(bytes)).parallel()
+                .mapToObj(i -> parseHypernyms(bytes, chunkStart(bytes, i), chunkStart(bytes, i + 1), size))
+                .toArray(CsrDigraph.Builder[]::new);
+
+        CsrDigraph.Builder digraph = chunks[0];
+        for (int i = 1; i < chunks.length; i++) digraph.addAll(chunks[i]);
+        return digraph.build();
+    }
+
+    private static ByteBuffer read(String path) {
+        Path file = Paths.get(path);
+        if (!Files.isRegularFile(file)) {
+            // URLs and class path resources, as accepted by In
+            return ByteBuffer.wrap(new In(path).readAll().getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException("File is too large: " + path);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int chunkCount(ByteBuffer bytes) {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), bytes.limit() / CHUNK_SIZE));
+    }
+
+    // first position of the i-th chunk: the start of the line following the nominal chunk boundary
+    private static int chunkStart(ByteBuffer bytes, int chunk) {
+        int chunks = chunkCount(bytes);
+        if (chunk == 0) return 0;
+        if (chunk == chunks) return bytes.limit();
+
+        int position = (int) ((long) bytes.limit() * chunk / chunks);
+        while (position < bytes.limit() && bytes.get(position - 1) != LINE_SEPARATOR) position++;
+        return position;
+    }
+
+    private static SynsetChunk parseSynsets(ByteBuffer bytes, int start, int end) {
+        SynsetChunk chunk = new SynsetChunk();
+        byte[] scratch = new byte[256];
+        int position = start;
+
+        while (position < end) {
+            int lineEnd = lineEnd(bytes, position, end);
+            if (isBlank(bytes, position, lineEnd)) {
+                position = lineEnd + 1;
+                continue;
+            }
+
+            int idEnd = fieldEnd(bytes, position, lineEnd);
+            int id = parseInt(bytes, position, idEnd);
+            if (idEnd == lineEnd) throw malformed(bytes, position, lineEnd);
+
+            int synsetStart = idEnd + 1;
+            int length = fieldEnd(bytes, synsetStart, lineEnd) - synsetStart;
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int i = 0; i < length; i++) scratch[i] = bytes.get(synsetStart + i);
+
+            chunk.add(id, new String(scratch, 0, length, StandardCharsets.UTF_8));
+            position = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static CsrDigraph.Builder parseHypernyms(ByteBuffer bytes, int start, int end, int size) {
+        CsrDigraph.Builder digraph = new CsrDigraph.Builder(size);
+        int position = start;
+
+        while (position < end) {
+            int lineEnd = lineEnd(bytes, position, end);
+            if (isBlank(bytes, position, lineEnd)) {
+                position = lineEnd + 1;
+                continue;
+            }
+
+            int fieldEnd = fieldEnd(bytes, position, lineEnd);
+            int synsetId = parseInt(bytes, position, fieldEnd);
+            while (fieldEnd < lineEnd) {
+                int fieldStart = fieldEnd + 1;
+                fieldEnd = fieldEnd(bytes, fieldStart, lineEnd);
+                digraph.addEdge(synsetId, parseInt(bytes, fieldStart, fieldEnd));
+            }
+            position = lineEnd + 1;
+        }
+        return digraph;
+    }
+
+    // position of the line separator, or end if the last line is not terminated
+    private static int lineEnd(ByteBuffer bytes, int position, int end) {
+        while (position < end && bytes.get(position) != LINE_SEPARATOR) position++;
+        return position;
+    }
+
+    private static int fieldEnd(ByteBuffer bytes, int position, int lineEnd) {
+        while (position < lineEnd && bytes.get(position) != FIELD_SEPARATOR) position++;
+        return position;
+    }
+
+    private static boolean isBlank(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isWhitespace(bytes.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\r' || b == '\t';
+    }
+
+    // non-negative decimal integer, surrounding whitespace allowed
+    private static int parseInt(ByteBuffer bytes, int start, int end) {
+        while (start < end && isWhitespace(bytes.get(start))) start++;
+        while (end > start && isWhitespace(bytes.get(end - 1))) end--;
+        if (start == end || end - start > 9) throw malformed(bytes, start, end);
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) throw malformed(bytes, start, end);
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException malformed(ByteBuffer bytes, int start, int end) {
+        byte[] field = new byte[end - start];
+        for (int i = 0; i < field.length; i++) field[i] = bytes.get(start + i);
+        return new IllegalArgumentException("Malformed input: '" + new String(field, StandardCharsets.UTF_8) + "'");
+    }
+
+    private static final class SynsetChunk {
+        private int[] ids = new int[64];
+        private String[] synsets = new String[64];
+        private int size;
+
+        void add(int id, String synset) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                synsets = Arrays.copyOf(synsets, size * 2);
+            }
+            ids[size] = id;
+            synsets[size] = synset;
+            size++;
+        }
+    }
+}
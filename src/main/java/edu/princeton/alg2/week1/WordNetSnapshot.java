@@ -0,0 +1,244 @@
+package edu.princeton.alg2.week1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a WordNet: synsets, the sorted noun dictionary with posting lists, the hypernyms digraph
+ * and, optionally, its distance-label index.
+ * <p>
+ * Layout: a header (magic, version, section count, then offset, length and CRC32 of every section)
+ * followed by 8-byte aligned sections. The dictionary sections use the layout of CompactSynsetDictionary.
+ * Opening maps the file read-only: the dictionary, the digraph and the labels are all read in place, so processes
+ * opening the same snapshot share its pages through the OS page cache and opening costs no copy. Checking the
+ * CRC32 of every section reads the whole file once; a caller that trusts the file, e.g. one it has just written,
+ * can skip it and fault in only the pages its queries touch
+ *
+ * @author Alexey Novakov
+ */
+final class WordNetSnapshot {
+    private static final int MAGIC = 0x574e5331;  // "WNS1"
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 8;
+
+    private static final int SYNSET_OFFSETS = 0;
+    private static final int SYNSET_BYTES = 1;
+    private static final int NOUN_OFFSETS = 2;
+    private static final int NOUN_BYTES = 3;
+    private static final int POSTING_OFFSETS = 4;
+    private static final int POSTINGS = 5;
+    private static final int GRAPH_OFFSETS = 6;
+    private static final int GRAPH_TARGETS = 7;
+    private static final int SECTIONS = 8;
+    private static final int LABEL_OFFSETS = 8;
+    private static final int LABEL_HUBS = 9;
+    private static final int LABEL_DISTANCES = 10;
+    private static final int INDEXED_SECTIONS = 11;
+
+    private final SynsetDictionary dictionary;
+    private final CsrDigraph digraph;
+    private final AncestorLabels labels;  // null if the snapshot has no index
+
+    private WordNetSnapshot(SynsetDictionary dictionary, CsrDigraph digraph, AncestorLabels labels) {
+        this.dictionary = dictionary;
+        this.digraph = digraph;
+        this.labels = labels;
+    }
+
+    SynsetDictionary dictionary() {
+        return dictionary;
+    }
+
+    CsrDigraph digraph() {
+        return digraph;
+    }
+
+    AncestorLabels labels() {
+        return labels;
+    }
+
+    // writes the snapshot to a temporary file next to the target, then moves it in place; labels may be null
+    static void write(SynsetDictionary dictionary, CsrDigraph digraph, AncestorLabels labels, Path path) {
+        ByteBuffer[] sections = new ByteBuffer[labels == null ? SECTIONS : INDEXED_SECTIONS];
+        writeSynsets(dictionary, sections);
+        writeNouns(dictionary, sections);
+        writeDigraph(digraph, sections);
+        if (labels != null) writeLabels(labels, sections);
+
+        int headerSize = align(3 * Integer.BYTES + sections.length * 3 * Integer.BYTES);
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sections.length);
+        long offset = headerSize;
+        for (ByteBuffer section : sections) {
+            if (offset > Integer.MAX_VALUE) throw new IllegalArgumentException("Snapshot is too large");
+            header.putInt((int) offset).putInt(section.limit()).putInt(checksum(section));
+            offset = align(offset + section.limit());
+        }
+        header.rewind();  // keep the zero padding up to the first section
+
+        try {
+            Path absolute = path.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                for (ByteBuffer section : sections) {
+                    section.rewind();
+                    writeFully(channel, section);
+                    writeFully(channel, ByteBuffer.allocate(align(section.limit()) - section.limit()));
+                }
+                channel.force(true);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // maps the snapshot and verifies its header, and the checksums of all sections if verify is set
+    static WordNetSnapshot open(Path path, boolean verify) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw corrupted(path, "file is too large");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (buffer.limit() < 3 * Integer.BYTES || buffer.getInt(0) != MAGIC) throw corrupted(path, "not a WordNet snapshot");
+        if (buffer.getInt(4) != VERSION) throw corrupted(path, "unsupported version " + buffer.getInt(4));
+        int sectionCount = buffer.getInt(8);
+        if (sectionCount != SECTIONS && sectionCount != INDEXED_SECTIONS) throw corrupted(path, "unexpected section count " + sectionCount);
+
+        long start = System.nanoTime();
+        ByteBuffer[] sections = new ByteBuffer[sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            int entry = 3 * Integer.BYTES + i * 3 * Integer.BYTES;
+            int offset = buffer.getInt(entry);
+            int length = buffer.getInt(entry + Integer.BYTES);
+            if (offset < 0 || length < 0 || (long) offset + length > buffer.limit()) throw corrupted(path, "section " + i + " is out of bounds");
+
+            sections[i] = slice(buffer, offset, length);
+            if (verify && checksum(sections[i]) != buffer.getInt(entry + 2 * Integer.BYTES)) throw corrupted(path, "checksum mismatch in section " + i);
+        }
+
+        SynsetDictionary dictionary = new CompactSynsetDictionary(
+                sections[SYNSET_OFFSETS].asIntBuffer(), sections[SYNSET_BYTES],
+                sections[NOUN_OFFSETS].asIntBuffer(), sections[NOUN_BYTES],
+                sections[POSTING_OFFSETS].asIntBuffer(), sections[POSTINGS].asIntBuffer());
+        CsrDigraph digraph = CsrDigraph.of(sections[GRAPH_OFFSETS].asIntBuffer(), sections[GRAPH_TARGETS].asIntBuffer());
+        if (digraph.V() != dictionary.synsetCount()) throw corrupted(path, "digraph does not match synsets");
+
+        AncestorLabels labels = null;
+        if (sectionCount == INDEXED_SECTIONS) {
+            labels = new AncestorLabels(sections[LABEL_OFFSETS].asIntBuffer(), sections[LABEL_HUBS].asIntBuffer(),
+                    sections[LABEL_DISTANCES].asIntBuffer(), System.nanoTime() - start);
+            if (labels.vertices() != digraph.V()) throw corrupted(path, "labels do not match digraph");
+        }
+        return new WordNetSnapshot(dictionary, digraph, labels);
+    }
+
+    private static void writeSynsets(SynsetDictionary dictionary, ByteBuffer[] sections) {
+        byte[][] synsets = new byte[dictionary.synsetCount()][];
+        for (int id = 0; id < synsets.length; id++) synsets[id] = dictionary.synset(id).getBytes(StandardCharsets.UTF_8);
+        writeStrings(synsets, sections, SYNSET_OFFSETS, SYNSET_BYTES);
+    }
+
+    private static void writeNouns(SynsetDictionary dictionary, ByteBuffer[] sections) {
+        byte[][] nouns = new byte[dictionary.nounCount()][];
+        int n = 0;
+        for (String noun : dictionary.nouns()) nouns[n++] = noun.getBytes(StandardCharsets.UTF_8);
+        Arrays.sort(nouns, CompactSynsetDictionary::compareUnsigned);
+        writeStrings(nouns, sections, NOUN_OFFSETS, NOUN_BYTES);
+
+        int[][] ids = new int[nouns.length][];
+        int postings = 0;
+        for (int i = 0; i < nouns.length; i++) {
+            ids[i] = dictionary.ids(new String(nouns[i], StandardCharsets.UTF_8));
+            postings += ids[i].length;
+        }
+
+        IntBuffer offsets = allocate(sections, POSTING_OFFSETS, nouns.length + 1);
+        IntBuffer values = allocate(sections, POSTINGS, postings);
+        offsets.put(0);
+        for (int[] posting : ids) {
+            values.put(posting);
+            offsets.put(values.position());
+        }
+    }
+
+    private static void writeDigraph(CsrDigraph digraph, ByteBuffer[] sections) {
+        IntBuffer offsets = allocate(sections, GRAPH_OFFSETS, digraph.V() + 1);
+        IntBuffer targets = allocate(sections, GRAPH_TARGETS, digraph.E());
+        // an updated digraph may keep the edges of some vertices apart, so they are laid out vertex by vertex
+        for (int v = 0; v < digraph.V(); v++) {
+            offsets.put(targets.position());
+            for (int e = digraph.firstEdge(v); e < digraph.lastEdge(v); e++) targets.put(digraph.target(e));
+        }
+        offsets.put(targets.position());
+    }
+
+    private static void writeLabels(AncestorLabels labels, ByteBuffer[] sections) {
+        allocate(sections, LABEL_OFFSETS, labels.offsets().remaining()).put(labels.offsets());
+        allocate(sections, LABEL_HUBS, labels.hubs().remaining()).put(labels.hubs());
+        allocate(sections, LABEL_DISTANCES, labels.distances().remaining()).put(labels.distances());
+    }
+
+    private static void writeStrings(byte[][] strings, ByteBuffer[] sections, int offsetsSection, int bytesSection) {
+        IntBuffer offsets = allocate(sections, offsetsSection, strings.length + 1);
+        int size = 0;
+        for (byte[] string : strings) size += string.length;
+
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        offsets.put(0);
+        for (byte[] string : strings) {
+            bytes.put(string);
+            offsets.put(bytes.position());
+        }
+        bytes.flip();
+        sections[bytesSection] = bytes;
+    }
+
+    private static IntBuffer allocate(ByteBuffer[] sections, int section, int ints) {
+        sections[section] = ByteBuffer.allocate(ints * Integer.BYTES);
+        return sections[section].asIntBuffer();
+    }
+
+    private static int checksum(ByteBuffer section) {
+        CRC32 crc = new CRC32();
+        crc.update(section.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static int align(int size) {
+        return (int) align((long) size);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static IllegalArgumentException corrupted(Path path, String reason) {
+        return new IllegalArgumentException(String.format("Corrupted snapshot %s: %s", path, reason));
+    }
+}
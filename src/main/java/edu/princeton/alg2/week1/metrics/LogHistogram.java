@@ -0,0 +1,82 @@
+package edu.princeton.alg2.week1.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values in log-linear buckets: every power-of-two range is split into
+ * 8 equal sub-buckets, so a percentile, reported as the upper bound of its bucket, is at most 1/8 above the exact value
+ *
+ * @author Alexey Novakov
+ */
+final class LogHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final LongAdder[] buckets = new LongAdder[(Long.SIZE - SUB_BITS) * SUB_BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LogHistogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        buckets[bucket(v)].increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    // values below 8 get a bucket each, larger ones are bucketed by their top 4 bits
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // largest value falling into the bucket
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long bound = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS + 1) << shift;
+        return bound <= 0 ? Long.MAX_VALUE : bound - 1;  // the last bucket ends at Long.MAX_VALUE
+    }
+
+    long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) count += bucket.sum();
+        return count;
+    }
+
+    double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    // upper bound of the bucket holding the given quantile, between 0 and 1; 0 if nothing was recorded
+    long percentile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) count += counts[i] = buckets[i].sum();
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max(), upperBound(i));
+        }
+        return max();
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) bucket.reset();
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,66 @@
+package edu.princeton.alg2.week1.metrics;
+
+/**
+ * Cost of one shortest ancestral path query: wall time and, for a BFS, the vertices it visited on both sides,
+ * the edges it scanned, its largest depth level and whether it stopped before exhausting the ancestors
+ *
+ * @author Alexey Novakov
+ */
+public final class QueryStats {
+    private final long nanos;
+    private final int verticesVisited;
+    private final long edgesScanned;
+    private final int maxFrontier;
+    private final boolean terminatedEarly;
+    private final boolean indexed;
+
+    public QueryStats(long nanos, int verticesVisited, long edgesScanned, int maxFrontier, boolean terminatedEarly,
+                      boolean indexed) {
+        this.nanos = nanos;
+        this.verticesVisited = verticesVisited;
+        this.edgesScanned = edgesScanned;
+        this.maxFrontier = maxFrontier;
+        this.terminatedEarly = terminatedEarly;
+        this.indexed = indexed;
+    }
+
+    // query answered by merging distance labels, without any traversal
+    public static QueryStats indexed(long nanos) {
+        return new QueryStats(nanos, 0, 0, 0, false, true);
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    // vertices reached by the search, counted once per side
+    public int verticesVisited() {
+        return verticesVisited;
+    }
+
+    // edges leaving the expanded vertices
+    public long edgesScanned() {
+        return edgesScanned;
+    }
+
+    // size of the largest depth level of either side
+    public int maxFrontier() {
+        return maxFrontier;
+    }
+
+    // true if a side stopped since no further ancestor could shorten the path found
+    public boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
+    // true if the query merged index labels instead of searching
+    public boolean indexed() {
+        return indexed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryStats{nanos=%d, verticesVisited=%d, edgesScanned=%d, maxFrontier=%d, terminatedEarly=%b, indexed=%b}",
+                nanos, verticesVisited, edgesScanned, maxFrontier, terminatedEarly, indexed);
+    }
+}
@@ -0,0 +1,140 @@
+package edu.princeton.alg2.week1.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate SAP metrics: latency and visited-vertex histograms plus counters, updated lock-free by concurrent
+ * queries and optionally exposed as a platform MXBean
+ *
+ * @author Alexey Novakov
+ */
+public final class SapHistograms implements SapMetrics, SapHistogramsMXBean {
+    private static final String DOMAIN = "edu.princeton.alg2.week1";
+
+    private final LogHistogram latencyNanos = new LogHistogram();
+    private final LogHistogram visited = new LogHistogram();
+    private final LongAdder indexedQueries = new LongAdder();
+    private final LongAdder earlyTerminations = new LongAdder();
+    private final LongAdder edgesScanned = new LongAdder();
+
+    @Override
+    public void record(QueryStats stats) {
+        latencyNanos.record(stats.nanos());
+        if (stats.indexed()) {
+            indexedQueries.increment();
+            return;
+        }
+        visited.record(stats.verticesVisited());
+        edgesScanned.add(stats.edgesScanned());
+        if (stats.terminatedEarly()) earlyTerminations.increment();
+    }
+
+    // registers this instance with the platform MBean server under the given name; returns the object name
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register SAP metrics " + name, e);
+        }
+    }
+
+    public void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister SAP metrics " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=SapHistograms,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getQueries() {
+        return latencyNanos.count();
+    }
+
+    @Override
+    public long getIndexedQueries() {
+        return indexedQueries.sum();
+    }
+
+    @Override
+    public long getEarlyTerminations() {
+        return earlyTerminations.sum();
+    }
+
+    @Override
+    public long getEdgesScanned() {
+        return edgesScanned.sum();
+    }
+
+    @Override
+    public double getLatencyMeanNanos() {
+        return latencyNanos.mean();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latencyNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latencyNanos.percentile(0.99);
+    }
+
+    @Override
+    public long getLatencyP999Nanos() {
+        return latencyNanos.percentile(0.999);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latencyNanos.max();
+    }
+
+    @Override
+    public double getVisitedMean() {
+        return visited.mean();
+    }
+
+    @Override
+    public long getVisitedP50() {
+        return visited.percentile(0.5);
+    }
+
+    @Override
+    public long getVisitedP99() {
+        return visited.percentile(0.99);
+    }
+
+    @Override
+    public long getVisitedMax() {
+        return visited.max();
+    }
+
+    @Override
+    public void reset() {
+        latencyNanos.reset();
+        visited.reset();
+        indexedQueries.reset();
+        earlyTerminations.reset();
+        edgesScanned.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SapHistograms{queries=%d, indexed=%d, earlyTerminations=%d, edgesScanned=%d, "
+                        + "latencyNanos(mean=%.1f, p50=%d, p99=%d, p999=%d, max=%d), visited(mean=%.1f, p50=%d, p99=%d, max=%d)}",
+                getQueries(), getIndexedQueries(), getEarlyTerminations(), getEdgesScanned(),
+                getLatencyMeanNanos(), getLatencyP50Nanos(), getLatencyP99Nanos(), getLatencyP999Nanos(), getLatencyMaxNanos(),
+                getVisitedMean(), getVisitedP50(), getVisitedP99(), getVisitedMax());
+    }
+}
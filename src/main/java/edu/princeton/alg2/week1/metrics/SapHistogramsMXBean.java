@@ -0,0 +1,37 @@
+package edu.princeton.alg2.week1.metrics;
+
+/**
+ * JMX view of SapHistograms; latencies are in nanoseconds, percentiles are upper bounds of log-linear buckets (at most 1/8 above the exact value)
+ *
+ * @author Alexey Novakov
+ */
+public interface SapHistogramsMXBean {
+
+    long getQueries();
+
+    long getIndexedQueries();
+
+    long getEarlyTerminations();
+
+    long getEdgesScanned();
+
+    double getLatencyMeanNanos();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyP999Nanos();
+
+    long getLatencyMaxNanos();
+
+    double getVisitedMean();
+
+    long getVisitedP50();
+
+    long getVisitedP99();
+
+    long getVisitedMax();
+
+    void reset();
+}
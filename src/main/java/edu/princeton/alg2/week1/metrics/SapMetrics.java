@@ -0,0 +1,12 @@
+package edu.princeton.alg2.week1.metrics;
+
+/**
+ * Receiver of per-query statistics of a SAP. It is called on the querying thread right after every query,
+ * so it has to be thread-safe and cheap
+ *
+ * @author Alexey Novakov
+ */
+public interface SapMetrics {
+
+    void record(QueryStats stats);
+}
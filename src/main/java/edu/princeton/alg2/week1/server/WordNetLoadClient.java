@@ -0,0 +1,176 @@
+package edu.princeton.alg2.week1.server;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load generator for WordNetServer: every connection sends a mix of DISTANCE, SAP, ISNOUN and OUTCAST requests
+ * on random nouns back to back for the given duration, then the OK, ERR and BUSY replies are counted and throughput
+ * and latency percentiles are printed for the OK replies, so that fast rejections do not pass for fast answers
+ *
+ * @author Alexey Novakov
+ */
+public class WordNetLoadClient {
+    private static final int OUTCAST_NOUNS = 8;
+
+    private final String host;
+    private final int port;
+    private final String[] nouns;
+
+    public WordNetLoadClient(String host, int port, String[] nouns) {
+        this.host = host;
+        this.port = port;
+        this.nouns = nouns;
+    }
+
+    // replies of a run: latencies of the OK replies and the numbers of ERR and BUSY replies
+    public static final class Result {
+        private final long[] latencies;
+        private final long errors;
+        private final long busy;
+
+        Result(long[] latencies, long errors, long busy) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.busy = busy;
+        }
+
+        // latencies of the OK replies in nanoseconds
+        public long[] latencies() {
+            return latencies;
+        }
+
+        public int ok() {
+            return latencies.length;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public long busy() {
+            return busy;
+        }
+    }
+
+    // runs the given number of connections, one thread each, for the given time; the latencies of the result are sorted
+    public Result run(int connections, long durationMillis) {
+        long deadline = System.nanoTime() + durationMillis * 1_000_000;
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < connections; i++) results.add(executor.submit(() -> runConnection(deadline)));
+
+            List<long[]> latencies = new ArrayList<>();
+            long errors = 0;
+            long busy = 0;
+            for (Future<Result> connection : results) {
+                Result result = connection.get();
+                latencies.add(result.latencies);
+                errors += result.errors;
+                busy += result.busy;
+            }
+            return new Result(latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray(), errors, busy);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result runConnection(long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        long busy = 0;
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                out.write(nextRequest());
+                out.newLine();
+                out.flush();
+                String reply = in.readLine();
+                if (reply == null) break;
+
+                if (reply.startsWith("OK")) {
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                } else if (reply.equals("BUSY")) {
+                    busy++;
+                } else {
+                    errors++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors, busy);
+    }
+
+    private String nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int kind = random.nextInt(100);
+        if (kind < 45) return "DISTANCE " + randomNoun(random) + ' ' + randomNoun(random);
+        if (kind < 90) return "SAP " + randomNoun(random) + ' ' + randomNoun(random);
+        if (kind < 98) return "ISNOUN " + randomNoun(random);
+
+        StringBuilder request = new StringBuilder("OUTCAST");
+        for (int i = 0; i < OUTCAST_NOUNS; i++) request.append(' ').append(randomNoun(random));
+        return request.toString();
+    }
+
+    private String randomNoun(ThreadLocalRandom random) {
+        return nouns[random.nextInt(nouns.length)];
+    }
+
+    // percentile of sorted latencies, in microseconds
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1_000.0;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            StdOut.println("Usage:\njava WordNetLoadClient [host] [port] [synsets] [connections] [duration seconds]");
+            return;
+        }
+
+        String[] nouns = Arrays.stream(new In(args[2]).readAllLines())
+                .map(line -> line.split(",")[1])
+                .flatMap(synset -> Arrays.stream(synset.split(" ")))
+                .distinct()
+                .toArray(String[]::new);
+        int connections = Integer.parseInt(args[3]);
+        long durationMillis = Long.parseLong(args[4]) * 1_000;
+
+        Result result = new WordNetLoadClient(args[0], Integer.parseInt(args[1]), nouns).run(connections, durationMillis);
+        long[] latencies = result.latencies();
+        StdOut.printf("replies: OK %d, ERR %d, BUSY %d, throughput: %.0f OK/s%n",
+                result.ok(), result.errors(), result.busy(), result.ok() * 1_000.0 / durationMillis);
+        StdOut.printf("OK latency us: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+}
@@ -0,0 +1,302 @@
+package edu.princeton.alg2.week1.server;
+
+import edu.princeton.alg2.week1.Outcast;
+import edu.princeton.alg2.week1.WordNet;
+import edu.princeton.alg2.week1.metrics.SapHistograms;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line-protocol TCP endpoint over one shared WordNet. Every request is a line with a command and
+ * space separated nouns, every response a line starting with OK, ERR or BUSY:
+ * <pre>
+ * ISNOUN noun          -> OK true|false
+ * DISTANCE nounA nounB -> OK 5
+ * SAP nounA nounB      -> OK synset
+ * OUTCAST noun...      -> OK noun
+ * </pre>
+ * Every connection and every request on it gets its own virtual thread when the JVM provides them (a cached thread
+ * pool otherwise), so pipelined requests are handled concurrently while their responses are written in request
+ * order. The queries themselves run on a fixed pool of maxInFlight platform workers: SAP keeps its search workspace,
+ * a few arrays as long as the digraph, in a thread local, which a thread per request would allocate and drop for
+ * every query, so virtual threads only wait for the workers and never search. Identical requests in flight at the
+ * same time are computed once and share the result. A request that finds no free worker within the queue timeout
+ * gets BUSY, as do the identical requests waiting for it. A request that fails gets ERR with the reason
+ *
+ * @author Alexey Novakov
+ */
+public class WordNetServer implements AutoCloseable {
+    private static final long QUEUE_TIMEOUT_MILLIS = 100;
+    private static final int MAX_PIPELINED = 1024;  // requests of one connection waiting for their responses to be written
+    private static final Future<String> END = CompletableFuture.completedFuture(null);  // the connection has no more requests
+
+    private final WordNet wordNet;
+    private final Outcast outcast;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+
+    // listens on the given port (0 for any free port), computing at most maxInFlight requests at a time
+    public WordNetServer(WordNet wordNet, int port, int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("Max in-flight requests should be positive");
+
+        this.wordNet = wordNet;
+        this.outcast = new Outcast(wordNet);
+        this.workers = newWorkers(maxInFlight);
+        this.executor = newThreadPerTaskExecutor();
+        try {
+            this.serverSocket = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        executor.submit(this::acceptConnections);
+    }
+
+    // port the server listens on
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    // virtual threads are available from Java 21; the server falls back to platform threads on older JVMs
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // maxInFlight threads which hand-off queries wait for up to the queue timeout, rejecting them afterwards
+    private static ThreadPoolExecutor newWorkers(int maxInFlight) {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), (task, pool) -> {
+            try {
+                if (pool.isShutdown() || !pool.getQueue().offer(task, QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new RejectedExecutionException("No worker within " + QUEUE_TIMEOUT_MILLIS + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        });
+        workers.prestartAllCoreThreads();
+        return workers;
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) StdOut.println("Failed to accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // reads the requests of a connection and starts each as its own task; the responses are written by another one
+    private void serve(Socket socket) {
+        BlockingQueue<Future<String>> responses = new ArrayBlockingQueue<>(MAX_PIPELINED);
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+            Future<?> writer = executor.submit(() -> write(s, responses));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String request = line;
+                    responses.put(executor.submit(() -> respond(request)));
+                }
+            } finally {
+                responses.put(END);
+                writer.get();
+            }
+        } catch (SocketException e) {
+            // client went away
+        } catch (IOException e) {
+            StdOut.println("Connection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // a writer interrupted by close has nothing to report
+            if (!(e.getCause() instanceof InterruptedException)) StdOut.println("Connection failed: " + e.getCause());
+        }
+    }
+
+    // writes the responses in request order as they complete, flushing whenever the next one is not ready yet.
+    // If writing fails the connection is closed and the remaining responses are dropped, so the reader never waits
+    private Void write(Socket socket, BlockingQueue<Future<String>> responses) throws InterruptedException, ExecutionException {
+        try {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            for (Future<String> response = responses.take(); response != END; response = responses.take()) {
+                out.write(response.get());
+                out.newLine();
+                Future<String> next = responses.peek();
+                if (next == null || !next.isDone()) out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            if (!(e instanceof SocketException)) StdOut.println("Connection failed: " + e.getMessage());
+            try {
+                socket.close();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            while (responses.take() != END) {
+                // the reader stops at the closed socket
+            }
+        }
+        return null;
+    }
+
+    // response to one request line
+    String respond(String line) {
+        String[] words = line.trim().split("\\s+");
+        String command = words[0].toUpperCase(Locale.ROOT);
+        String[] nouns = Arrays.copyOfRange(words, 1, words.length);
+
+        try {
+            return "OK " + coalesce(key(command, nouns), () -> execute(command, nouns));
+        } catch (RejectedExecutionException e) {
+            return "BUSY";
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        } catch (RuntimeException e) {
+            return "ERR " + e;
+        }
+    }
+
+    private String execute(String command, String[] nouns) {
+        switch (command) {
+            case "ISNOUN":
+                requireNouns(nouns, 1);
+                return String.valueOf(wordNet.isNoun(nouns[0]));
+            case "DISTANCE":
+                requireNouns(nouns, 2);
+                return String.valueOf(wordNet.distance(nouns[0], nouns[1]));
+            case "SAP":
+                requireNouns(nouns, 2);
+                return wordNet.sap(nouns[0], nouns[1]);
+            case "OUTCAST":
+                if (nouns.length == 0) throw new IllegalArgumentException("OUTCAST expects at least one noun");
+                return outcast.outcast(nouns);
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    // symmetric queries share a key regardless of the noun order
+    private static String key(String command, String[] nouns) {
+        if (nouns.length == 2 && ("DISTANCE".equals(command) || "SAP".equals(command)) && nouns[0].compareTo(nouns[1]) > 0) {
+            return command + ' ' + nouns[1] + ' ' + nouns[0];
+        }
+        return command + ' ' + String.join(" ", nouns);
+    }
+
+    // runs the query unless an identical one is already running, in which case its result is awaited without taking
+    // a worker; throws RejectedExecutionException if no worker frees up within the queue timeout
+    private String coalesce(String key, Query query) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> running = pending.putIfAbsent(key, result);
+        if (running == null) {
+            try {
+                result.complete(runOnWorker(query));
+            } catch (Throwable e) {
+                // waiters get every failure, so that none of them is left waiting
+                result.completeExceptionally(e);
+            } finally {
+                pending.remove(key, result);
+            }
+            running = result;
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String runOnWorker(Query query) {
+        Future<String> result = workers.submit(query::run);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void requireNouns(String[] nouns, int count) {
+        if (nouns.length != count) throw new IllegalArgumentException(String.format("Expected %d nouns but got %d", count, nouns.length));
+    }
+
+    private interface Query {
+        String run();
+    }
+
+    // serves a WordNet from a snapshot, or from synsets and hypernyms files
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length != 3 && args.length != 4) {
+            StdOut.println("Usage:\njava WordNetServer [port] [max in-flight requests] [snapshot | synsets hypernyms]");
+            return;
+        }
+
+        int port = Integer.parseInt(args[0]);
+        int maxInFlight = Integer.parseInt(args[1]);
+        WordNet wordNet = args.length == 3 ? WordNet.fromSnapshot(args[2]) : new WordNet(args[2], args[3], 100_000);
+
+        SapHistograms metrics = new SapHistograms();
+        wordNet.metrics(metrics);
+
+        WordNetServer server = new WordNetServer(wordNet, port, maxInFlight);
+        StdOut.println("WordNet server listening on port " + server.port() + ", query metrics at " + metrics.register("WordNetServer"));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,241 @@
+package edu.princeton.alg2.week2;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Pyramid of pixel energies for approximate seams. Level 0 is the picture itself, every level above sums blocks of
+ * 2 by 2 entries of the level below, so an entry of level l covers a block of up to 2^l by 2^l pixels. A seam is
+ * found exactly on the top level only; every level below searches a narrow band around the seam of the level above,
+ * scaled up. The sums are brought up to date before a search, and removing a seam only puts the blocks from the one
+ * next to it to the end of each row out of date: the pixels before it keep their places and energies, those after it
+ * move by one and pair up anew. Besides those sums, the work is the search of the top level, which shrinks fourfold
+ * with every level, and a few entries per step below. The sums and the search buffers are sized for the original
+ * picture and reused while it shrinks
+ *
+ * @author Alexey Novakov
+ */
+final class EnergyPyramid {
+    private static final byte LEFT = -1, STRAIGHT = 0, RIGHT = 1;
+    private static final int BAND = 2;  // entries searched on either side of the scaled up seam of the level above
+    private static final int UP_TO_DATE = Integer.MAX_VALUE;
+    private static final double[] INVERSE_AREA = new double[32];    // 1 / 4^l, exactly
+    static {
+        for (int l = 0; l < INVERSE_AREA.length; l++) INVERSE_AREA[l] = 1.0 / (1L << 2 * l);
+    }
+
+    private final double[] energy;              // energies of the carver, one of them is not null
+    private final float[] floatEnergy;
+    private final int[] squaredEnergy;
+    private final int stride;
+    private final int levels;
+    private final double[][] sums;              // sums[l], l > 0, row by row with rows of strides[l] entries
+    private final int[] strides;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[][] stale;                // stale[l][y]: first block of row y of level l whose sum is out of date
+    private int width, height;                  // size of the picture the sums were last brought up to date for
+    private final int[] from, to, offsets;      // band of every step of the level searched and its entries in
+    private final double[] energyTo;            // the band search table
+    private final byte[] edgeTo;
+    private int[] seam, above;                  // seams of the level searched and of the one above
+
+    // pyramid of the given number of levels above the energies of a picture of at most stride by depth pixels
+    EnergyPyramid(double[] energy, float[] floatEnergy, int[] squaredEnergy, int stride, int depth, int levels) {
+        this.energy = energy;
+        this.floatEnergy = floatEnergy;
+        this.squaredEnergy = squaredEnergy;
+        this.stride = stride;
+        this.levels = levels;
+        sums = new double[levels + 1][];
+        strides = new int[levels + 1];
+        widths = new int[levels + 1];
+        heights = new int[levels + 1];
+        stale = new int[levels + 1][];
+        for (int l = 1; l <= levels; l++) {
+            strides[l] = blocks(stride, l);
+            sums[l] = new double[strides[l] * blocks(depth, l)];
+            stale[l] = new int[blocks(depth, l)];
+        }
+
+        int steps = Math.max(stride, depth);
+        from = new int[steps];
+        to = new int[steps];
+        offsets = new int[steps + 1];
+        seam = new int[steps];
+        above = new int[steps];
+        int entries = Math.max(blocks(stride, levels) * blocks(depth, levels), (2 + 2 * BAND) * steps);
+        energyTo = new double[entries];
+        edgeTo = new byte[entries];
+    }
+
+    int levels() {
+        return levels;
+    }
+
+    // number of blocks of level l along a side of the given length
+    private static int blocks(int length, int l) {
+        return (length + (1 << l) - 1) >> l;
+    }
+
+    private double energyAt(int i) {
+        return energy != null ? energy[i] : floatEnergy != null ? floatEnergy[i] : squaredEnergy[i];
+    }
+
+    // a vertical seam through a[y] in row y was removed: the pixels from a[y] - 1 on changed
+    void removedVerticalSeam(int[] a, int height) {
+        int[] rows = stale[1];
+        if (rows == null) return;
+        for (int y = 0; y < height; y++) {
+            int block = Math.max(a[y] - 1, 0) >> 1;
+            if (block < rows[y >> 1]) rows[y >> 1] = block;
+        }
+    }
+
+    // a horizontal seam through a[x] in column x was removed: the pixels from a[x] - 1 on changed. A row of blocks is
+    // out of date from the first block whose columns changed in that row
+    void removedHorizontalSeam(int[] a, int width) {
+        int[] rows = stale[1];
+        if (rows == null) return;
+        int top = rows.length;      // rows from here on are out of date from a block before the current one
+        for (int x = 0; x < width && top > 0; x += 2) {
+            int first = Math.max(x + 1 < width ? Math.min(a[x], a[x + 1]) - 1 : a[x] - 1, 0) >> 1;
+            for (int y = first; y < top; y++) rows[y] = Math.min(rows[y], x >> 1);
+            top = Math.min(top, first);
+        }
+    }
+
+    // brings the out of date sums up to date for the current energies of a width by height picture
+    void update(int width, int height) {
+        this.width = width;
+        this.height = height;
+        widths[0] = width;
+        heights[0] = height;
+        for (int l = 1; l <= levels; l++) {
+            widths[l] = blocks(width, l);
+            heights[l] = blocks(height, l);
+        }
+        if (levels == 0) return;
+
+        IntStream rows = IntStream.range(0, heights[1]);
+        if ((long) width * height >= SeamCarver.PARALLEL_PIXELS) rows = rows.parallel();
+        rows.forEach(y -> {
+            double[] level = sums[1];
+            int row = y * strides[1];
+            int top = 2 * y * stride;
+            int bottom = 2 * y + 1 < height ? top + stride : -1;
+            // whole blocks, then the block of an odd last column
+            for (int x = stale[1][y]; x < width >> 1; x++) {
+                int i = 2 * x;
+                double sum = energyAt(top + i) + energyAt(top + i + 1);
+                if (bottom >= 0) sum += energyAt(bottom + i) + energyAt(bottom + i + 1);
+                level[row + x] = sum;
+            }
+            if ((width & 1) == 1 && stale[1][y] < widths[1]) {
+                double sum = energyAt(top + width - 1);
+                if (bottom >= 0) sum += energyAt(bottom + width - 1);
+                level[row + widths[1] - 1] = sum;
+            }
+        });
+        for (int l = 2; l <= levels; l++) {
+            double[] below = sums[l - 1];
+            double[] level = sums[l];
+            int w = widths[l - 1];
+            for (int y = 0; y < heights[l]; y++) {
+                int row = y * strides[l];
+                int top = 2 * y * strides[l - 1];
+                int bottom = 2 * y + 1 < heights[l - 1] ? top + strides[l - 1] : -1;
+                stale[l][y] = Math.min(stale[l - 1][2 * y], bottom >= 0 ? stale[l - 1][2 * y + 1] : UP_TO_DATE) >> 1;
+                for (int x = stale[l][y]; x < widths[l]; x++) {
+                    int i = 2 * x;
+                    double sum = below[top + i];
+                    if (i + 1 < w) sum += below[top + i + 1];
+                    if (bottom >= 0) sum += i + 1 < w ? below[bottom + i] + below[bottom + i + 1] : below[bottom + i];
+                    level[row + x] = sum;
+                }
+            }
+        }
+        Arrays.fill(stale[1], UP_TO_DATE);
+    }
+
+    // approximate seam through the picture the levels were brought up to date for: down the rows if vertical, else
+    // along the columns
+    int[] findSeam(boolean vertical) {
+        int top = levels;
+        int steps = vertical ? heights[top] : widths[top];
+        Arrays.fill(from, 0, steps, 0);
+        Arrays.fill(to, 0, steps, vertical ? widths[top] : heights[top]);
+        bandedSeam(top, vertical, steps);
+
+        for (int l = top - 1; l >= 0; l--) {
+            int[] swap = above;
+            above = seam;
+            seam = swap;
+            int positions = vertical ? widths[l] : heights[l];
+            steps = vertical ? heights[l] : widths[l];
+            for (int s = 0; s < steps; s++) {
+                int p = 2 * above[s >> 1];
+                from[s] = Math.max(p - BAND, 0);
+                to[s] = Math.min(p + 2 + BAND, positions);
+            }
+            bandedSeam(l, vertical, steps);
+        }
+        return Arrays.copyOf(seam, steps);
+    }
+
+    // least energy seam of level l into the seam buffer, whose entry at step s is between from[s] (inclusive) and
+    // to[s] (exclusive)
+    private void bandedSeam(int l, boolean vertical, int steps) {
+        for (int s = 0; s < steps; s++) offsets[s + 1] = offsets[s] + to[s] - from[s];
+
+        for (int p = from[0]; p < to[0]; p++) energyTo[p - from[0]] = cost(l, vertical, 0, p);
+        for (int s = 1; s < steps; s++) {
+            int previous = offsets[s - 1] - from[s - 1];
+            int current = offsets[s] - from[s];
+            int low = from[s - 1];          // band of the previous step, inclusive
+            int high = to[s - 1] - 1;
+            for (int p = from[s]; p < to[s]; p++) {
+                // neighbours outside of the band of the previous step are out of reach
+                double min = Double.POSITIVE_INFINITY;
+                byte edge = STRAIGHT;
+                if (p - 1 >= low && p - 1 <= high) {
+                    min = energyTo[previous + p - 1];
+                    edge = LEFT;
+                }
+                if (p >= low && p <= high && energyTo[previous + p] < min) {
+                    min = energyTo[previous + p];
+                    edge = STRAIGHT;
+                }
+                if (p + 1 >= low && p + 1 <= high && energyTo[previous + p + 1] < min) {
+                    min = energyTo[previous + p + 1];
+                    edge = RIGHT;
+                }
+                energyTo[current + p] = min + cost(l, vertical, s, p);
+                edgeTo[current + p] = edge;
+            }
+        }
+
+        int last = steps - 1;
+        int min = from[last];
+        for (int p = from[last] + 1; p < to[last]; p++) {
+            if (energyTo[offsets[last] + p - from[last]] < energyTo[offsets[last] + min - from[last]]) min = p;
+        }
+        seam[last] = min;
+        for (int s = last; s > 0; s--) {
+            min += edgeTo[offsets[s] + min - from[s]];
+            seam[s - 1] = min;
+        }
+    }
+
+    // mean energy of the pixels of the entry of level l at step s and position p
+    private double cost(int l, boolean vertical, int s, int p) {
+        int y = vertical ? s : p;
+        int x = vertical ? p : s;
+        if (l == 0) return energyAt(y * stride + x);
+        double sum = sums[l][y * strides[l] + x];
+        // only the blocks of the last row and column can be cut short
+        if ((y + 1) << l <= height && (x + 1) << l <= width) return sum * INVERSE_AREA[l];
+        int side = 1 << l;
+        return sum / (Math.min(side, height - y * side) * Math.min(side, width - x * side));
+    }
+}
@@ -0,0 +1,140 @@
+package edu.princeton.alg2.week2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Matrix of ints, doubles or bytes kept row by row in a file mapped into memory. One mapping covers at most 1 GB of
+ * whole rows, so larger matrices span several mappings while every row stays within one of them. Not thread safe:
+ * bulk transfers move the position of the mapped buffers
+ *
+ * @author Alexey Novakov
+ */
+final class MappedMatrix implements AutoCloseable {
+    private static final long SEGMENT_BYTES = 1 << 30;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int stride;           // elements per row
+    private final int rowsPerSegment;
+    private final ByteBuffer[] bytes;
+    private final IntBuffer[] ints;     // views of the mappings, for matrices of ints
+    private final DoubleBuffer[] doubles;
+
+    private MappedMatrix(Path file, int rows, int stride, int elementBytes, ByteOrder order) {
+        this.file = file;
+        this.stride = stride;
+        long rowBytes = (long) stride * elementBytes;
+        if (rowBytes > SEGMENT_BYTES) throw new IllegalArgumentException("Row of " + rowBytes + " bytes is too long");
+        this.rowsPerSegment = (int) Math.min(rows, SEGMENT_BYTES / rowBytes);
+
+        int segments = (rows + rowsPerSegment - 1) / rowsPerSegment;
+        bytes = new ByteBuffer[segments];
+        ints = elementBytes == Integer.BYTES ? new IntBuffer[segments] : null;
+        doubles = elementBytes == Double.BYTES ? new DoubleBuffer[segments] : null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            for (int i = 0; i < segments; i++) {
+                int segmentRows = Math.min(rowsPerSegment, rows - i * rowsPerSegment);
+                bytes[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * rowsPerSegment * rowBytes, segmentRows * rowBytes)
+                        .order(order);
+                if (ints != null) ints[i] = bytes[i].asIntBuffer();
+                if (doubles != null) doubles[i] = bytes[i].asDoubleBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // matrix of ints over the file, which is extended as needed
+    static MappedMatrix ints(Path file, int rows, int stride, ByteOrder order) {
+        return new MappedMatrix(file, rows, stride, Integer.BYTES, order);
+    }
+
+    // matrix of doubles over the file, which is extended as needed
+    static MappedMatrix doubles(Path file, int rows, int stride) {
+        return new MappedMatrix(file, rows, stride, Double.BYTES, ByteOrder.nativeOrder());
+    }
+
+    // matrix of bytes over the file, which is extended as needed
+    static MappedMatrix bytes(Path file, int rows, int stride) {
+        return new MappedMatrix(file, rows, stride, Byte.BYTES, ByteOrder.nativeOrder());
+    }
+
+    int getInt(int y, int x) {
+        return ints[y / rowsPerSegment].get(index(y, x));
+    }
+
+    void putInt(int y, int x, int value) {
+        ints[y / rowsPerSegment].put(index(y, x), value);
+    }
+
+    double getDouble(int y, int x) {
+        return doubles[y / rowsPerSegment].get(index(y, x));
+    }
+
+    void putDouble(int y, int x, double value) {
+        doubles[y / rowsPerSegment].put(index(y, x), value);
+    }
+
+    byte getByte(int y, int x) {
+        return bytes[y / rowsPerSegment].get(index(y, x));
+    }
+
+    // length elements of row y from column x on, into the array
+    void getInts(int y, int x, int[] to, int offset, int length) {
+        IntBuffer segment = ints[y / rowsPerSegment];
+        ((Buffer) segment).position(index(y, x));
+        segment.get(to, offset, length);
+    }
+
+    // length elements of the array into row y from column x on
+    void putInts(int y, int x, int[] from, int offset, int length) {
+        IntBuffer segment = ints[y / rowsPerSegment];
+        ((Buffer) segment).position(index(y, x));
+        segment.put(from, offset, length);
+    }
+
+    void getDoubles(int y, int x, double[] to, int offset, int length) {
+        DoubleBuffer segment = doubles[y / rowsPerSegment];
+        ((Buffer) segment).position(index(y, x));
+        segment.get(to, offset, length);
+    }
+
+    void putDoubles(int y, int x, double[] from, int offset, int length) {
+        DoubleBuffer segment = doubles[y / rowsPerSegment];
+        ((Buffer) segment).position(index(y, x));
+        segment.put(from, offset, length);
+    }
+
+    void putBytes(int y, int x, byte[] from, int offset, int length) {
+        ByteBuffer segment = bytes[y / rowsPerSegment];
+        ((Buffer) segment).position(index(y, x));
+        segment.put(from, offset, length);
+    }
+
+    // position of an element within its mapping
+    private int index(int y, int x) {
+        return (y % rowsPerSegment) * stride + x;
+    }
+
+    // closes and deletes the file; the mappings stay valid until they are garbage collected
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package edu.princeton.alg2.week2;
+
+import edu.princeton.cs.algs4.Picture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static edu.princeton.alg2.week2.SeamCarver.DEFAULT_ENERGY;
+import static edu.princeton.alg2.week2.SeamCarver.deltaSquared;
+
+/**
+ * Seam carver for pictures larger than the heap. Colors, energies and seam back-pointers are kept in temporary
+ * memory-mapped files, row-major with the original width as stride like in SeamCarver, and seams are removed in
+ * place there. A seam search streams the energies through a window of a few megabytes, row band by row band for
+ * vertical seams and column band by column band for horizontal ones, and writes the back-pointers of every band to
+ * their file; besides the window it only holds the last two steps of the cumulative energies. Energies and
+ * tie-breaking follow SeamCarver, so both find the same seams
+ *
+ * @author Alexey Novakov
+ */
+public final class MappedSeamCarver implements AutoCloseable {
+    static final int WINDOW_BYTES = 1 << 24;   // heap for the energies and back-pointers of a band
+    private static final byte LEFT = -1, STRAIGHT = 0, RIGHT = 1;
+
+    private int width, height;
+    private final MappedMatrix color;       // 0xAARRGGBB per pixel
+    private final MappedMatrix energy;
+    private final MappedMatrix edgeTo;      // direction of the previous entry of the last seam search per pixel
+
+    // maps new files for a picture of the given size, taking over the colors in the given file
+    private MappedSeamCarver(Path colors, Path directory, int width, int height) {
+        this.width = width;
+        this.height = height;
+        try {
+            color = MappedMatrix.ints(colors, height, width, ByteOrder.BIG_ENDIAN);
+            energy = MappedMatrix.doubles(Files.createTempFile(directory, "seam", ".energy"), height, width);
+            edgeTo = MappedMatrix.bytes(Files.createTempFile(directory, "seam", ".edges"), height, width);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * carves a copy of the picture, kept in temporary files in the directory until closed
+     */
+    public MappedSeamCarver(Picture picture, Path directory) {
+        this(colorFile(directory), directory, picture.width(), picture.height());
+        int[] pixels = Pictures.pixels(picture);
+        for (int r = 0; r < height; r++) color.putInts(r, 0, pixels, r * width, width);
+        computeEnergies();
+    }
+
+    /**
+     * carves a copy of a file of width * height pixels, row by row, each a big-endian 0xAARRGGBB int, as written by
+     * {@link #writeArgb(Path)}; the copy is kept in temporary files in the directory until closed
+     */
+    public static MappedSeamCarver open(Path argb, int width, int height, Path directory) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("Cannot carve a " + width + "x" + height + " picture");
+        Path colors;
+        try {
+            if (Files.size(argb) != (long) width * height * Integer.BYTES) {
+                throw new IllegalArgumentException(argb + " does not hold " + width + "x" + height + " pixels");
+            }
+            colors = colorFile(directory);
+            Files.copy(argb, colors, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MappedSeamCarver carver = new MappedSeamCarver(colors, directory, width, height);
+        carver.computeEnergies();
+        return carver;
+    }
+
+    // helper for constructor: new temporary file for colors
+    private static Path colorFile(Path directory) {
+        try {
+            return Files.createTempFile(directory, "seam", ".argb");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // energies of all pixels, a row at a time from the row above and below
+    private void computeEnergies() {
+        int[] above = new int[width];
+        int[] row = new int[width];
+        int[] below = new int[width];
+        double[] energies = new double[width];
+        color.getInts(0, 0, row, 0, width);
+        for (int r = 0; r < height; r++) {
+            if (r + 1 < height) color.getInts(r + 1, 0, below, 0, width);
+            for (int c = 0; c < width; c++) {
+                if (c == 0 || c == width - 1 || r == 0 || r == height - 1) energies[c] = DEFAULT_ENERGY;
+                else energies[c] = Math.sqrt(deltaSquared(above[c], below[c]) + deltaSquared(row[c - 1], row[c + 1]));
+            }
+            energy.putDoubles(r, 0, energies, 0, width);
+
+            int[] swap = above;
+            above = row;
+            row = below;
+            below = swap;
+        }
+    }
+
+    /**
+     * current picture, which has to fit in the heap
+     */
+    public Picture picture() {
+        return Pictures.picture(width, height, (r, data, offset) -> color.getInts(r, 0, data, offset, width));
+    }
+
+    /**
+     * writes the current picture to a file, row by row, each pixel a big-endian 0xAARRGGBB int
+     */
+    public void writeArgb(Path file) {
+        int[] row = new int[width];
+        ByteBuffer bytes = ByteBuffer.allocate(width * Integer.BYTES).order(ByteOrder.BIG_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int r = 0; r < height; r++) {
+                color.getInts(r, 0, row, 0, width);
+                bytes.clear();
+                bytes.asIntBuffer().put(row);
+                while (bytes.hasRemaining()) channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * width of the current picture
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * height of the current picture
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * energy of pixel at column x and row y in the current picture
+     */
+    public double energy(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) throw new IndexOutOfBoundsException();
+        if (x == 0 || x == width - 1 || y == 0 || y == height - 1) return DEFAULT_ENERGY;
+        return Math.sqrt(deltaSquared(color.getInt(y - 1, x), color.getInt(y + 1, x))
+                + deltaSquared(color.getInt(y, x - 1), color.getInt(y, x + 1)));
+    }
+
+    /**
+     * sequence of indices for vertical seam in current picture
+     */
+    public int[] findVerticalSeam() {
+        int[] seam = new int[height];
+        if (width == 1) return seam;
+
+        double[] lastEnergyTo = new double[width];
+        double[] currentEnergyTo = new double[width];
+        int band = Math.max(1, Math.min(height, WINDOW_BYTES / ((Double.BYTES + 1) * width)));
+        double[] energies = new double[band * width];
+        byte[] edges = new byte[band * width];
+
+        for (int first = 0; first < height; first += band) {
+            int rows = Math.min(band, height - first);
+            for (int i = 0; i < rows; i++) energy.getDoubles(first + i, 0, energies, i * width, width);
+            for (int i = 0; i < rows; i++) {
+                if (first + i == 0) {
+                    System.arraycopy(energies, 0, lastEnergyTo, 0, width);
+                    continue;
+                }
+                relax(lastEnergyTo, currentEnergyTo, width, energies, edges, i * width, 1);
+                double[] swap = lastEnergyTo;
+                lastEnergyTo = currentEnergyTo;
+                currentEnergyTo = swap;
+            }
+            for (int i = 0; i < rows; i++) edgeTo.putBytes(first + i, 0, edges, i * width, width);
+        }
+
+        // trace back the seam
+        seam[height - 1] = argMin(lastEnergyTo, width);
+        for (int r = height - 1; r > 0; r--) seam[r - 1] = seam[r] + edgeTo.getByte(r, seam[r]);
+        return seam;
+    }
+
+    /**
+     * sequence of indices for horizontal seam in current picture
+     */
+    public int[] findHorizontalSeam() {
+        int[] seam = new int[width];
+        if (height == 1) return seam;
+
+        double[] lastEnergyTo = new double[height];
+        double[] currentEnergyTo = new double[height];
+        int band = Math.max(1, Math.min(width, WINDOW_BYTES / ((Double.BYTES + 1) * height)));
+        double[] energies = new double[height * band];  // row r of the band from band * r on
+        byte[] edges = new byte[height * band];
+
+        for (int first = 0; first < width; first += band) {
+            int columns = Math.min(band, width - first);
+            for (int r = 0; r < height; r++) energy.getDoubles(r, first, energies, r * band, columns);
+            for (int i = 0; i < columns; i++) {
+                if (first + i == 0) {
+                    for (int r = 0; r < height; r++) lastEnergyTo[r] = energies[r * band];
+                    continue;
+                }
+                relax(lastEnergyTo, currentEnergyTo, height, energies, edges, i, band);
+                double[] swap = lastEnergyTo;
+                lastEnergyTo = currentEnergyTo;
+                currentEnergyTo = swap;
+            }
+            for (int r = 0; r < height; r++) edgeTo.putBytes(r, first, edges, r * band, columns);
+        }
+
+        // trace back the seam
+        seam[width - 1] = argMin(lastEnergyTo, height);
+        for (int c = width - 1; c > 0; c--) seam[c - 1] = seam[c] + edgeTo.getByte(seam[c], c);
+        return seam;
+    }
+
+    // relaxes the n entries of a step from the previous one as SeamCarver does; the energy of entry k is at
+    // offset + k * gap of energies, and its back-pointer goes to the same place in edges
+    private static void relax(double[] lastEnergyTo, double[] currentEnergyTo, int n, double[] energies, byte[] edges,
+                              int offset, int gap) {
+        // edge case when column number is 0
+        if (lastEnergyTo[0] <= lastEnergyTo[1]) {
+            currentEnergyTo[0] = lastEnergyTo[0] + energies[offset];
+            edges[offset] = STRAIGHT;
+        } else {
+            currentEnergyTo[0] = lastEnergyTo[1] + energies[offset];
+            edges[offset] = RIGHT;
+        }
+        // when column number is between 0 and n - 1
+        for (int k = 1; k < n - 1; k++) {
+            double min = lastEnergyTo[k - 1];
+            byte edge = LEFT;
+            if (lastEnergyTo[k] < min) {
+                min = lastEnergyTo[k];
+                edge = STRAIGHT;
+            }
+            if (lastEnergyTo[k + 1] < min) {
+                min = lastEnergyTo[k + 1];
+                edge = RIGHT;
+            }
+            currentEnergyTo[k] = min + energies[offset + k * gap];
+            edges[offset + k * gap] = edge;
+        }
+        // edge case when column number is n - 1
+        int last = offset + (n - 1) * gap;
+        if (lastEnergyTo[n - 2] <= lastEnergyTo[n - 1]) {
+            currentEnergyTo[n - 1] = lastEnergyTo[n - 2] + energies[last];
+            edges[last] = LEFT;
+        } else {
+            currentEnergyTo[n - 1] = lastEnergyTo[n - 1] + energies[last];
+            edges[last] = STRAIGHT;
+        }
+    }
+
+    // first index of the least of the first n values
+    private static int argMin(double[] values, int n) {
+        int min = 0;
+        for (int i = 1; i < n; i++) {
+            if (values[i] < values[min]) min = i;
+        }
+        return min;
+    }
+
+    /**
+     * remove vertical seam from current picture
+     */
+    public void removeVerticalSeam(int[] a) {
+        SeamCarver.handleRemoveSeamExceptions(a, height, width);
+        int[] colors = new int[width];
+        double[] energies = new double[width];
+        for (int r = 0; r < height; r++) {
+            int tail = width - a[r] - 1;
+            color.getInts(r, a[r] + 1, colors, 0, tail);
+            color.putInts(r, a[r], colors, 0, tail);
+            energy.getDoubles(r, a[r] + 1, energies, 0, tail);
+            energy.putDoubles(r, a[r], energies, 0, tail);
+        }
+        width--;
+
+        // only the energy of the seam element and its left element changes
+        for (int r = 1; r < height - 1; r++) {
+            int x = a[r];
+            if (x > 0) energy.putDouble(r, x - 1, (int) energy(x - 1, r));
+            if (x < width) energy.putDouble(r, x, (int) energy(x, r));
+        }
+    }
+
+    /**
+     * remove horizontal seam from current picture
+     */
+    public void removeHorizontalSeam(int[] a) {
+        SeamCarver.handleRemoveSeamExceptions(a, width, height);
+
+        // row by row, every column below its seam entry moves up by one
+        int top = height;
+        for (int y : a) top = Math.min(top, y);
+        int[] colors = new int[width];
+        int[] colorsBelow = new int[width];
+        double[] energies = new double[width];
+        double[] energiesBelow = new double[width];
+        if (top < height - 1) {
+            color.getInts(top, 0, colors, 0, width);
+            energy.getDoubles(top, 0, energies, 0, width);
+        }
+        for (int r = top; r < height - 1; r++) {
+            color.getInts(r + 1, 0, colorsBelow, 0, width);
+            energy.getDoubles(r + 1, 0, energiesBelow, 0, width);
+            for (int c = 0; c < width; c++) {
+                if (a[c] <= r) {
+                    colors[c] = colorsBelow[c];
+                    energies[c] = energiesBelow[c];
+                }
+            }
+            color.putInts(r, 0, colors, 0, width);
+            energy.putDoubles(r, 0, energies, 0, width);
+
+            int[] swapColors = colors;
+            colors = colorsBelow;
+            colorsBelow = swapColors;
+            double[] swapEnergies = energies;
+            energies = energiesBelow;
+            energiesBelow = swapEnergies;
+        }
+        height--;
+
+        // only the energy of the seam element and the element above it changes
+        for (int c = 1; c < width - 1; c++) {
+            int y = a[c];
+            if (y > 0) energy.putDouble(y - 1, c, (int) energy(c, y - 1));
+            if (y < height) energy.putDouble(y, c, (int) energy(c, y));
+        }
+    }
+
+    // deletes the files
+    @Override
+    public void close() {
+        try {
+            color.close();
+        } finally {
+            try {
+                energy.close();
+            } finally {
+                edgeTo.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package edu.princeton.alg2.week2;
+
+import edu.princeton.cs.algs4.Picture;
+
+import javax.imageio.ImageIO;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Moves pixels between pictures and int arrays in bulk rather than through a Color per pixel. algs4 hands out the
+ * image of a picture only as the icon of its label; a picture whose label holds no BufferedImage is read and written
+ * through a Color per pixel after all
+ *
+ * @author Alexey Novakov
+ */
+final class Pictures {
+    private static final int OPAQUE = 0xff000000;
+
+    private Pictures() {
+    }
+
+    // opaque pixels of the picture, row by row, copied from its image in bulk
+    static int[] pixels(Picture picture) {
+        return pixels(picture, new int[picture.width() * picture.height()]);
+    }
+
+    // opaque pixels of the picture, row by row, into the first width * height entries of the given array
+    static int[] pixels(Picture picture, int[] pixels) {
+        int w = picture.width();
+        int h = picture.height();
+        BufferedImage image = image(picture);
+        if (image == null) {
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) pixels[y * w + x] = picture.get(x, y).getRGB() | OPAQUE;
+            }
+            return pixels;
+        }
+        int[] data = intRgb(image);
+        if (data != null) {
+            System.arraycopy(data, 0, pixels, 0, w * h);
+        } else {
+            image.getRGB(0, 0, w, h, pixels, 0, w);
+        }
+        for (int i = 0; i < w * h; i++) pixels[i] |= OPAQUE;
+
+        // Picture flips the rows of its image when its origin is the lower left corner, which it does not tell:
+        // the first pixel that differs from its mirror in the other half of the picture does
+        for (int y = 0; y < h / 2; y++) {
+            int top = y * w;
+            int bottom = (h - 1 - y) * w;
+            for (int x = 0; x < w; x++) {
+                if (pixels[top + x] != pixels[bottom + x]) {
+                    if (picture.get(x, y).getRGB() != pixels[top + x]) flipRows(pixels, w, h);
+                    return pixels;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    // helper for pixels: reverses the order of the rows
+    private static void flipRows(int[] pixels, int w, int h) {
+        int[] row = new int[w];
+        for (int y = 0; y < h / 2; y++) {
+            System.arraycopy(pixels, y * w, row, 0, w);
+            System.arraycopy(pixels, (h - 1 - y) * w, pixels, y * w, w);
+            System.arraycopy(row, 0, pixels, (h - 1 - y) * w, w);
+        }
+    }
+
+    // width by height picture whose rows are copied from the source, straight into the pixels of its image if it has
+    // them, else a row at a time
+    static Picture picture(int width, int height, RowSource rows) {
+        Picture picture = new Picture(width, height);
+        BufferedImage image = image(picture);
+        int[] data = image != null ? intRgb(image) : null;
+        if (data != null) {
+            for (int y = 0; y < height; y++) rows.copyRow(y, data, y * width);
+            return picture;
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            rows.copyRow(y, row, 0);
+            if (image != null) {
+                image.setRGB(0, y, width, 1, row, 0, width);
+            } else {
+                for (int x = 0; x < width; x++) picture.set(x, y, new Color(row[x]));
+            }
+        }
+        return picture;
+    }
+
+    // writes the picture to a png or jpg file, by its extension; unlike Picture.save, failures are not swallowed
+    static void write(Picture picture, Path file) {
+        String name = file.getFileName().toString();
+        String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        if (!format.equals("png") && !format.equals("jpg")) {
+            throw new IllegalArgumentException("File name should end in .png or .jpg: " + file);
+        }
+        BufferedImage image = image(picture);
+        if (image == null) {
+            image = new BufferedImage(picture.width(), picture.height(), BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, picture.width(), picture.height(), pixels(picture), 0, picture.width());
+        }
+        try {
+            if (!ImageIO.write(image, format, file.toFile())) throw new IOException("No writer for " + format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the image behind a picture, which algs4 only hands out through its label; null if the label holds no
+    // BufferedImage
+    private static BufferedImage image(Picture picture) {
+        JLabel label = picture.getJLabel();
+        Icon icon = label != null ? label.getIcon() : null;
+        Image image = icon instanceof ImageIcon ? ((ImageIcon) icon).getImage() : null;
+        return image instanceof BufferedImage ? (BufferedImage) image : null;
+    }
+
+    // the pixels of an image stored as one int per pixel, row by row without padding; null for other layouts
+    private static int[] intRgb(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB) return null;
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != image.getWidth()
+                || raster.getDataBuffer().getNumBanks() != 1 || raster.getDataBuffer().getOffset() != 0) return null;
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Rows of a picture being built
+     */
+    interface RowSource {
+        // copies the pixels of row y, as opaque 0xAARRGGBB values, into pixels from offset on
+        void copyRow(int y, int[] pixels, int offset);
+    }
+}
@@ -2,51 +2,266 @@ package edu.princeton.alg2.week2;
 
 import edu.princeton.cs.algs4.Picture;
 
-import java.awt.Color;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 /**
+ * Colors and energies are kept in flat row-major buffers whose stride is the original width: pixel (x, y) is at
+ * y * stride + x. Vertical and horizontal seams are found and removed in place in that layout, so switching
+ * between directions costs nothing. Large pictures use all cores: the initial energies are computed in parallel
+ * row bands and every step of a wide seam search relaxes column chunks in parallel; as each cell is computed
+ * exactly as in the serial path, seams do not depend on the number of threads. The table of the last seam search
+ * is kept: removing a seam in the same direction only recomputes the entries its removal can have changed. It is
+ * allocated once, with one byte per pixel for the direction a seam comes from, so a search allocates nothing but
+ * the seam it returns. The loops over consecutive pixels of a row, the energies and the steps of vertical seam
+ * searches, run in SeamKernels, on the Vector API where the JVM provides it
+ *
  * @author Alexey Novakov
  */
 public class SeamCarver {
     public static final int DEFAULT_ENERGY = 1_000;
+    static final int PARALLEL_PIXELS = 1 << 16;   // smallest picture whose energies are computed in parallel
+    static final int PARALLEL_CHUNK = 1 << 11;    // smallest column chunk of a seam step relaxed by one task
+    private static final int NONE = 0, VERTICAL = 1, HORIZONTAL = 2;
+    private static final byte LEFT = -1, STRAIGHT = 0, RIGHT = 1;
+    private static final SeamKernels KERNELS = SeamKernels.load();
+    private int stride;              // row length of the buffers, i.e. the original width
+    private int depth;               // original height, the column length of the horizontal seam table
     private int width, height;
-    private int[][] color;           // int array as intermediate representation of the picture
-    private double[][] energy;        // caching energy for every pixel
-    private boolean isTransposed;  // is color currently transposed?
+    private int[] color;             // int array as intermediate representation of the picture
+    private double[] energy;         // caching energy for every pixel in DOUBLE precision, null otherwise
+    private float[] floatEnergy;     // caching energy for every pixel in FLOAT precision, null otherwise
+    private int[] squaredEnergy;     // caching squared energy for every pixel in SQUARED precision, null otherwise
+    private double[] energyTo;       // seam table, allocated by the first search: least energy of a seam reaching a pixel
+    private byte[] edgeTo;           // and the direction of its previous entry, as an offset in the previous step
+    private int seamTable = NONE;    // direction of the seams in the table, NONE if it is out of date
+    private int validSteps;          // leading steps of the table which are up to date, the next search recomputes the rest
+    private double[] spareEnergyTo;  // table of the other direction, allocated by a greedy resize, which searches both
+    private byte[] spareEdgeTo;
+    private int spareTable = NONE;   // direction of the seams in the spare table, never pending an update
+    private int spareValidSteps;
+    private int[] removed;           // last seam removed in the direction of the table, while the table is not updated
+    private boolean pending;
+    private EnergyPyramid pyramid;   // allocated by the first approximate search
+
+    /**
+     * order of the horizontal and vertical seams removed by a resize: all horizontal seams first, the cheaper of the
+     * two next seams at every step, or the order of least total seam energy by the transport map of Avidan and Shamir,
+     * which takes two seam searches for every number of rows and columns removed and keeps the colors and energies
+     * of the picture for every number of columns removed. GREEDY keeps a seam table per direction: the one of the
+     * removed seam is updated, the other one is recomputed from the first step the seam runs next to, which is the
+     * price of every step over ROWS_FIRST
+     */
+    public enum Order {
+        ROWS_FIRST, GREEDY, OPTIMAL
+    }
+
+    /**
+     * storage of the energy of every pixel: FLOAT takes half the memory of DOUBLE and SQUARED keeps the exact squared
+     * energies as ints, skipping the roots. Seam energies are summed in double precision in every mode.
+     * <p>
+     * FLOAT stores every energy rounded to the nearest float: border energies and the energies of removal
+     * neighbours, which are whole numbers, are exact, and an inner energy, at most sqrt(6 * 255^2) &lt; 625, is off by
+     * less than 2^-15. A step of a search picks the same predecessor as DOUBLE unless the partial seam energies it
+     * compares differ by no more than the rounding errors they have accumulated, less than 2^-15 per pixel above the
+     * step, and the search ends at the same column under the same condition for whole seams. Seams that close only
+     * tie in exact arithmetic or differ in the last few bits of their sums; no fixture of the tests has such a tie.
+     * <p>
+     * SQUARED seams minimize the sum of squared energies rather than of energies, so they are other seams than those
+     * of DOUBLE and FLOAT; they favour many moderate gradients over a few strong ones. energy(x, y) is still the root
+     */
+    public enum Precision {
+        DOUBLE, FLOAT, SQUARED
+    }
 
     /**
      * constructor
      */
     public SeamCarver(Picture picture) {
-        isTransposed = false;
-        width = picture.width();
-        height = picture.height();
-        color = new int[height][width];
-        energy = new double[height][width];
+        this(picture, Precision.DOUBLE);
+    }
 
-        IntStream.range(0, height)
-                .forEach(r -> IntStream.range(0, width)
-                        .forEach(c -> color[r][c] = picture.get(c, r).getRGB()));
+    /**
+     * constructor keeping energies in the given precision
+     */
+    public SeamCarver(Picture picture, Precision precision) {
+        this(picture.width(), picture.height(), Pictures.pixels(picture), precision);
+    }
 
-        // energy initialization involves neighbours, hence is done after color initialization
-        IntStream.range(0, height)
-                .forEach(r -> IntStream.range(0, width)
-                        .forEach(c -> energy[r][c] = energy(c, r)));
+    /**
+     * constructor from pixels as 0xAARRGGBB values, row by row: pixel (x, y) is at y * width + x
+     */
+    public SeamCarver(int[] argb, int width, int height) {
+        this(argb, width, height, Precision.DOUBLE);
+    }
+
+    /**
+     * constructor from pixels as 0xAARRGGBB values keeping energies in the given precision
+     */
+    public SeamCarver(int[] argb, int width, int height, Precision precision) {
+        this(width, height, copyOf(argb, width, height), precision);
+    }
+
+    // takes over the row-major pixels of the given size
+    private SeamCarver(int width, int height, int[] color, Precision precision) {
+        this.width = width;
+        this.height = height;
+        stride = width;
+        depth = height;
+        this.color = color;
+        energy = Objects.requireNonNull(precision) == Precision.DOUBLE ? new double[width * height] : null;
+        floatEnergy = precision == Precision.FLOAT ? new float[width * height] : null;
+        squaredEnergy = precision == Precision.SQUARED ? new int[width * height] : null;
+        removed = new int[Math.max(width, height)];
+        computeEnergies();
+    }
+
+    // carves the given picture from now on, in the buffers of the previous one while they are large enough, so that
+    // a carver reused for many pictures allocates only for the largest of them
+    void load(Picture picture) {
+        int w = picture.width();
+        int h = picture.height();
+        if (color.length < w * h) {
+            color = new int[w * h];
+            if (energy != null) energy = new double[w * h];
+            else if (floatEnergy != null) floatEnergy = new float[w * h];
+            else squaredEnergy = new int[w * h];
+            energyTo = null;
+            edgeTo = null;
+            spareEnergyTo = null;
+            spareEdgeTo = null;
+        }
+        if (removed.length < Math.max(w, h)) removed = new int[Math.max(w, h)];
+        Pictures.pixels(picture, color);
+        width = w;
+        height = h;
+        stride = w;
+        depth = h;
+        seamTable = NONE;
+        spareTable = NONE;
+        pending = false;
+        pyramid = null;
+        computeEnergies();
+    }
+
+    // energy initialization involves neighbours, hence is done after color initialization
+    private void computeEnergies() {
+        IntStream rows = IntStream.range(0, height);
+        if ((long) width * height >= PARALLEL_PIXELS) rows = rows.parallel();
+        rows.forEach(this::computeEnergies);
+    }
+
+    // energies of row r. The squared gradients go to the energy buffer in one loop and are replaced by their roots in
+    // a second one over the plain array, so that no pixel goes through getEnergy; the sums of squares are exact
+    // integers, even as floats, so the roots are those of getEnergy. SQUARED precision keeps the squares
+    private void computeEnergies(int r) {
+        int row = r * stride;
+        if (r == 0 || r == height - 1 || width <= 2) {
+            for (int i = row; i < row + width; i++) setEnergy(i, borderEnergy());
+            return;
+        }
+
+        // the squares go to the energy buffer first, which saves a scratch row
+        int from = row + 1, to = row + width - 1;
+        if (energy != null) {
+            KERNELS.squaredGradients(color, stride, from, to, energy);
+            KERNELS.sqrt(energy, from, to);
+        } else if (floatEnergy != null) {
+            KERNELS.squaredGradients(color, stride, from, to, floatEnergy);
+            KERNELS.sqrt(floatEnergy, from, to);
+        } else {
+            KERNELS.squaredGradients(color, stride, from, to, squaredEnergy);
+        }
+        setEnergy(row, borderEnergy());
+        setEnergy(row + width - 1, borderEnergy());
+    }
+
+    // cached energy of a border pixel
+    private double borderEnergy() {
+        return squaredEnergy != null ? DEFAULT_ENERGY * DEFAULT_ENERGY : DEFAULT_ENERGY;
+    }
+
+    // caches the energy of pixel (x, y) of the current picture after a removal next to it, in whole units as ever
+    // unless it is squared, which is exact
+    private void refreshEnergy(int x, int y) {
+        int i = y * stride + x;
+        if (squaredEnergy == null) setEnergy(i, (int) getEnergy(x, y, height, width));
+        else if (x == 0 || x == width - 1 || y == 0 || y == height - 1) squaredEnergy[i] = DEFAULT_ENERGY * DEFAULT_ENERGY;
+        else squaredEnergy[i] = SeamKernels.squaredGradient(color, stride, i);
+    }
+
+    // cached energy of the pixel at index i of the buffers
+    private double energyAt(int i) {
+        return energy != null ? energy[i] : floatEnergy != null ? floatEnergy[i] : squaredEnergy[i];
+    }
+
+    private void setEnergy(int i, double value) {
+        if (energy != null) energy[i] = value;
+        else if (floatEnergy != null) floatEnergy[i] = (float) value;
+        else squaredEnergy[i] = (int) value;
+    }
+
+    // moves length cached energies from index from to index to of the buffers
+    private void moveEnergies(int from, int to, int length) {
+        if (energy != null) System.arraycopy(energy, from, energy, to, length);
+        else if (floatEnergy != null) System.arraycopy(floatEnergy, from, floatEnergy, to, length);
+        else System.arraycopy(squaredEnergy, from, squaredEnergy, to, length);
+    }
+
+    // helper for constructor: copy of the pixels, which have to be width by height
+    private static int[] copyOf(int[] argb, int width, int height) {
+        Objects.requireNonNull(argb);
+        if (width < 1 || height < 1 || argb.length != (long) width * height) {
+            throw new IllegalArgumentException(argb.length + " pixels for a " + width + "x" + height + " picture");
+        }
+        return argb.clone();
+    }
+
+    // copy of the current picture of the given carver, with buffers of its current size, searching in its seam table
+    private SeamCarver(SeamCarver carver) {
+        stride = carver.width;
+        depth = carver.height;
+        color = new int[stride * depth];
+        energy = carver.energy != null ? new double[stride * depth] : null;
+        floatEnergy = carver.floatEnergy != null ? new float[stride * depth] : null;
+        squaredEnergy = carver.squaredEnergy != null ? new int[stride * depth] : null;
+        energyTo = carver.energyTo;
+        edgeTo = carver.edgeTo;
+        removed = new int[Math.max(stride, depth)];
+        copyFrom(carver);
+    }
+
+    // takes over the current picture of the given carver, which has to fit into the buffers
+    private void copyFrom(SeamCarver carver) {
+        width = carver.width;
+        height = carver.height;
+        for (int r = 0; r < height; r++) {
+            System.arraycopy(carver.color, r * carver.stride, color, r * stride, width);
+            if (energy != null) System.arraycopy(carver.energy, r * carver.stride, energy, r * stride, width);
+            else if (floatEnergy != null) System.arraycopy(carver.floatEnergy, r * carver.stride, floatEnergy, r * stride, width);
+            else System.arraycopy(carver.squaredEnergy, r * carver.stride, squaredEnergy, r * stride, width);
+        }
+        seamTable = NONE;
+        pending = false;
     }
 
     /**
      * current picture
      */
     public Picture picture() {
-        Picture seamed = new Picture(width, height);
-        if (isTransposed) transpose(height, width);
+        // transfer back to picture, row by row into the pixels of its image
+        return Pictures.picture(width, height, (r, data, offset) -> System.arraycopy(color, r * stride, data, offset, width));
+    }
 
-        // transfer back to picture
-        for (int c = 0; c < width; c++)
-            for (int r = 0; r < height; r++)
-                seamed.set(c, r, new Color(color[r][c]));
-        return seamed;
+    /**
+     * current picture as 0xAARRGGBB values, row by row: pixel (x, y) is at y * width() + x
+     */
+    public int[] argb() {
+        int[] argb = new int[width * height];
+        for (int r = 0; r < height; r++) System.arraycopy(color, r * stride, argb, r * width, width);
+        return argb;
     }
 
     /**
@@ -71,121 +286,291 @@ public class SeamCarver {
      * @param y row number in the final picture
      */
     public double energy(int x, int y) {
-        if (isTransposed) transpose(height, width);
         return getEnergy(x, y, height, width);
     }
 
     // helper for compute energy
-    private double deltaSquared(int x, int y) {
+    static double deltaSquared(int x, int y) {
         int r = ((x >> 16) & 0x0ff) - ((y >> 16) & 0x0ff);
         int g = ((x >> 8) & 0x0ff) - ((y >> 8) & 0x0ff);
         int b = (x & 0x0ff) - (y & 0x0ff);
         return r * r + g * g + b * b;
     }
 
-    // computes energy for intermediate color with height h and width w
+    // computes energy for color with height h and width w
     private double getEnergy(int x, int y, int h, int w) {
         if (x < 0 || x >= w || y < 0 || y >= h) throw new IndexOutOfBoundsException();
         if (x == 0 || x == w - 1 || y == 0 || y == h - 1) return DEFAULT_ENERGY;
-        return Math.sqrt(deltaSquared(color[y - 1][x], color[y + 1][x]) + deltaSquared(color[y][x - 1], color[y][x + 1]));
+        int i = y * stride + x;
+        return Math.sqrt(deltaSquared(color[i - stride], color[i + stride]) + deltaSquared(color[i - 1], color[i + 1]));
     }
 
     /**
      * sequence of indices for vertical seam in current picture
      */
     public int[] findVerticalSeam() {
-        if (isTransposed) transpose(height, width);  // transpose back if color is transposed
-        return findSeam(height, width);
+        int[] seam = new int[height];
+        findSeam(VERTICAL, seam);
+        return seam;
     }
 
     /**
      * sequence of indices for horizontal seam in current picture
      */
     public int[] findHorizontalSeam() {
-        if (!isTransposed) transpose(width, height); // transpose color if not already transposed
-        return findSeam(width, height);
+        int[] seam = new int[width];
+        findSeam(HORIZONTAL, seam);
+        return seam;
     }
 
-    private int[] findSeam(int h, int w) {
-        if (w == 1) return new int[h];
+    /**
+     * approximate vertical seam in current picture, found on a pyramid of the given number of levels, each halving
+     * the picture, and refined within a narrow band on the way down. More levels are faster and less accurate,
+     * 0 levels find the exact seam
+     *
+     * @param levels number of levels above the picture
+     */
+    public int[] findVerticalSeam(int levels) {
+        if (levels == 0) return findVerticalSeam();
+        return energyPyramid(levels).findSeam(true);
+    }
 
-        double[] lastEnergyTo = new double[w];
-        double[] currentEnergyTo = new double[w];
-        int[][] edgeTo = new int[h][w];
+    /**
+     * approximate horizontal seam in current picture, found on a pyramid of the given number of levels
+     *
+     * @param levels number of levels above the picture
+     */
+    public int[] findHorizontalSeam(int levels) {
+        if (levels == 0) return findHorizontalSeam();
+        return energyPyramid(levels).findSeam(false);
+    }
 
-        System.arraycopy(energy[0], 0, lastEnergyTo, 0, w);
+    // pyramid of the current energies, reused if it has as many levels; removed seams put part of its sums out of date
+    private EnergyPyramid energyPyramid(int levels) {
+        if (levels < 0) throw new IllegalArgumentException("Negative number of levels " + levels);
+        // levels beyond the one of a single block add nothing
+        levels = Math.min(levels, 32 - Integer.numberOfLeadingZeros(Math.max(stride, depth) - 1));
+        if (pyramid == null || pyramid.levels() != levels) {
+            pyramid = new EnergyPyramid(energy, floatEnergy, squaredEnergy, stride, depth, levels);
+        }
+        pyramid.update(width, height);
+        return pyramid;
+    }
 
-        for (int r = 1; r < h; r++) {
-            // edge case when column number is 0
-            if (lastEnergyTo[0] <= lastEnergyTo[1]) {
-                currentEnergyTo[0] = lastEnergyTo[0] + energy[r][0];
-                edgeTo[r][0] = 0;
-            } else {
-                currentEnergyTo[0] = lastEnergyTo[1] + energy[r][0];
-                edgeTo[r][0] = 1;
-            }
-            // when column number is between 0 and w - 1
-            for (int c = 1; c < w - 1; c++) {
-                currentEnergyTo[c] = lastEnergyTo[c - 1];
-                edgeTo[r][c] = c - 1;
-                if (lastEnergyTo[c] < currentEnergyTo[c]) {
-                    currentEnergyTo[c] = lastEnergyTo[c];
-                    edgeTo[r][c] = c;
-                }
-                if (lastEnergyTo[c + 1] < currentEnergyTo[c]) {
-                    currentEnergyTo[c] = lastEnergyTo[c + 1];
-                    edgeTo[r][c] = c + 1;
-                }
-                currentEnergyTo[c] += energy[r][c];
+    /**
+     * energy of the given vertical seam above the least energy of any vertical seam, 0 for an exact seam
+     *
+     * @param a vertical seam array
+     */
+    public double extraVerticalSeamEnergy(int[] a) {
+        handleSeamExceptions(a, height, width);
+        return seamEnergy(a, stride, 1) - findSeam(VERTICAL, new int[height]);
+    }
+
+    /**
+     * energy of the given horizontal seam above the least energy of any horizontal seam, 0 for an exact seam
+     *
+     * @param a horizontal seam array
+     */
+    public double extraHorizontalSeamEnergy(int[] a) {
+        handleSeamExceptions(a, width, height);
+        return seamEnergy(a, 1, stride) - findSeam(HORIZONTAL, new int[width]);
+    }
+
+    // total energy of a seam, summed in the order of the seam table
+    private double seamEnergy(int[] a, int along, int across) {
+        double sum = 0;
+        for (int r = 0; r < a.length; r++) sum += energyAt(r * along + a[r] * across);
+        return sum;
+    }
+
+    // finds a seam of the direction into the first entries of the given array and returns its energy
+    private double findSeam(int direction, int[] seam) {
+        if (direction == VERTICAL) return findSeam(direction, height, width, stride, 1, stride, seam);
+        return findSeam(direction, width, height, 1, stride, depth, seam);  // walks the columns, one step along a row per seam entry
+    }
+
+    // seam of h entries, each between 0 and w - 1; entry c of step r is the pixel at r * along + c * across and the
+    // seam table entry at r * span + c. A vertical seam steps down the rows (along = stride, across = 1), a horizontal
+    // one steps right along the columns, whose table is laid out column by column to keep every step contiguous
+    private double findSeam(int direction, int h, int w, int along, int across, int span, int[] seam) {
+        if (w == 1) {
+            double sum = 0;
+            for (int r = 0; r < h; r++) {
+                seam[r] = 0;
+                sum += energyAt(r * along);
             }
-            // edge case when column number is w - 1
-            if (lastEnergyTo[w - 2] <= lastEnergyTo[w - 1]) {
-                currentEnergyTo[w - 1] = lastEnergyTo[w - 2] + energy[r][w - 1];
-                edgeTo[r][w - 1] = w - 2;
-            } else {
-                currentEnergyTo[w - 1] = lastEnergyTo[w - 1] + energy[r][w - 1];
-                edgeTo[r][w - 1] = w - 1;
+            return sum;
+        }
+
+        if (energyTo == null) {
+            energyTo = new double[color.length];
+            edgeTo = new byte[color.length];
+        }
+        if (seamTable != direction) useSeamTable(direction);
+        if (seamTable != direction) validSteps = 0;
+        if (validSteps < h) {
+            if (validSteps == 0) {
+                for (int c = 0; c < w; c++) energyTo[c] = energyAt(c * across);
             }
 
-            // swap last and current
-            double[] swap = lastEnergyTo;
-            lastEnergyTo = currentEnergyTo;
-            currentEnergyTo = swap;
+            int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism(), w / PARALLEL_CHUNK);
+            for (int r = Math.max(validSteps, 1); r < h; r++) {
+                if (chunks > 1) {
+                    int row = r;
+                    IntStream.range(0, chunks).parallel()
+                            .forEach(k -> relax(row, w, along, across, span, (int) ((long) k * w / chunks), (int) ((long) (k + 1) * w / chunks)));
+                } else {
+                    relax(r, w, along, across, span, 0, w);
+                }
+            }
+            seamTable = direction;
+            validSteps = h;
+            pending = false;
         }
+        updateSeamTable();
 
-        // because of swap, lastEnergyTo records the total energy to reach bottom
-        double minEnergyTo = lastEnergyTo[0];
+        // the last step records the total energy to reach the bottom
+        int last = (h - 1) * span;
+        double minEnergyTo = energyTo[last];
         int minCol = 0;
         for (int c = 1; c < w; c++) {
-            if (lastEnergyTo[c] < minEnergyTo) {
-                minEnergyTo = lastEnergyTo[c];
+            if (energyTo[last + c] < minEnergyTo) {
+                minEnergyTo = energyTo[last + c];
                 minCol = c;
             }
         }
 
         // trace back the seam
-        int[] seam = new int[h];
         seam[h - 1] = minCol;
         for (int r = h - 1; r > 0; r--) {
-            minCol = edgeTo[r][minCol];
+            minCol += edgeTo[r * span + minCol];
             seam[r - 1] = minCol;
         }
-        return seam;
+        return minEnergyTo;
     }
 
-    // helper for horizontal seam
-    private void transpose(int h, int w) {
-        int[][] transposedColor = new int[h][w];
-        double[][] transposedEnergy = new double[h][w];
+    // relaxes entries from (inclusive) to (exclusive) of step r from the entries of step r - 1
+    private void relax(int r, int w, int along, int across, int span, int from, int to) {
+        int step = r * along;
+        int t = r * span;
+        int prev = t - span;
+        // edge case when column number is 0
+        if (from == 0) {
+            if (energyTo[prev] <= energyTo[prev + 1]) {
+                energyTo[t] = energyTo[prev] + energyAt(step);
+                edgeTo[t] = STRAIGHT;
+            } else {
+                energyTo[t] = energyTo[prev + 1] + energyAt(step);
+                edgeTo[t] = RIGHT;
+            }
+        }
+        // when column number is between 0 and w - 1; the energies of a vertical step are consecutive
+        int first = Math.max(from, 1), end = Math.min(to, w - 1);
+        if (across == 1) {
+            if (energy != null) KERNELS.relax(energyTo, edgeTo, prev, t, energy, step, first, end);
+            else if (floatEnergy != null) KERNELS.relax(energyTo, edgeTo, prev, t, floatEnergy, step, first, end);
+            else KERNELS.relax(energyTo, edgeTo, prev, t, squaredEnergy, step, first, end);
+        } else {
+            for (int c = first; c < end; c++) {
+                int i = prev + c;
+                double min = energyTo[i - 1];
+                byte edge = LEFT;
+                if (energyTo[i] < min) {
+                    min = energyTo[i];
+                    edge = STRAIGHT;
+                }
+                if (energyTo[i + 1] < min) {
+                    min = energyTo[i + 1];
+                    edge = RIGHT;
+                }
+                energyTo[t + c] = min + energyAt(step + c * across);
+                edgeTo[t + c] = edge;
+            }
+        }
+        // edge case when column number is w - 1
+        if (to == w) {
+            int i = prev + w - 1;
+            if (energyTo[i - 1] <= energyTo[i]) {
+                energyTo[t + w - 1] = energyTo[i - 1] + energyAt(step + (w - 1) * across);
+                edgeTo[t + w - 1] = LEFT;
+            } else {
+                energyTo[t + w - 1] = energyTo[i] + energyAt(step + (w - 1) * across);
+                edgeTo[t + w - 1] = STRAIGHT;
+            }
+        }
+    }
+
+    // keeps a seam table per direction from now on, so that searching both directions in turn does not discard them
+    private void keepSpareSeamTable() {
+        if (spareEnergyTo == null) {
+            spareEnergyTo = new double[color.length];
+            spareEdgeTo = new byte[color.length];
+        }
+    }
+
+    // swaps in the spare table if it holds the seams of the direction, or else makes it the one to compute them in,
+    // keeping the current table as the spare one. Only the table of the last removed seam can be pending an update,
+    // which is applied before it is swapped out
+    private void useSeamTable(int direction) {
+        if (spareEnergyTo == null || (spareTable != direction && seamTable == NONE)) return;
+        updateSeamTable();
+        double[] energies = energyTo;
+        byte[] edges = edgeTo;
+        int table = seamTable;
+        int steps = validSteps;
+        energyTo = spareEnergyTo;
+        edgeTo = spareEdgeTo;
+        seamTable = spareTable;
+        validSteps = spareValidSteps;
+        spareEnergyTo = energies;
+        spareEdgeTo = edges;
+        spareTable = table;
+        spareValidSteps = steps;
+    }
+
+    // brings the seam table up to date if the last seam removed has been cut out of it together with the energies
+    private void updateSeamTable() {
+        if (!pending) return;
+        pending = false;
+        if (seamTable == VERTICAL) updateSeamTable(removed, height, width, stride, 1, stride);
+        else updateSeamTable(removed, width, height, 1, stride, depth);
+    }
+
+    // seam a is given in entries before the removal. An entry can only change if its energy changed next to the seam,
+    // if the seam shifted its neighbours of the previous step differently from itself, or if one of those neighbours
+    // changed. Everything else keeps its energy to and its edge, which is relative to its own position
+    private void updateSeamTable(int[] a, int h, int w, int along, int across, int span) {
+        if (w == 1) {
+            seamTable = NONE;
+            return;
+        }
+
+        int changedFrom = 0;    // changed entries of the previous step, changedFrom (inclusive) to changedTo (exclusive)
+        int changedTo = 0;
         for (int r = 0; r < h; r++) {
-            for (int c = 0; c < w; c++) {
-                transposedColor[r][c] = color[c][r];
-                transposedEnergy[r][c] = energy[c][r];
+            int from = a[r] - 2;
+            int to = a[r] + 2;
+            if (changedFrom < changedTo) {
+                from = Math.min(from, changedFrom - 1);
+                to = Math.max(to, changedTo + 1);
+            }
+            from = Math.max(from, 0);
+            to = Math.min(to, w);
+
+            changedFrom = w;
+            changedTo = 0;
+            for (int c = from; c < to; c++) {
+                int i = r * span + c;
+                double previous = energyTo[i];
+                if (r == 0) energyTo[i] = energyAt(c * across);
+                else relax(r, w, along, across, span, c, c + 1);
+                if (energyTo[i] != previous) {
+                    changedFrom = Math.min(changedFrom, c);
+                    changedTo = c + 1;
+                }
             }
         }
-        color = transposedColor;
-        energy = transposedEnergy;
-        isTransposed = !isTransposed;
     }
 
     /**
@@ -194,9 +579,36 @@ public class SeamCarver {
      * @param a vertical seam array
      */
     public void removeVerticalSeam(int[] a) {
-        if (isTransposed) transpose(height, width);
-        removeSeam(a, height, width);
+        handleRemoveSeamExceptions(a, height, width);
+        cutVerticalSeam(a);
+    }
+
+    // removes the vertical seam given by the first height entries of a
+    private void cutVerticalSeam(int[] a) {
+        if (spareTable == VERTICAL) useSeamTable(VERTICAL);
+        if (seamTable == VERTICAL) updateSeamTable();
+        for (int r = 0; r < height; r++) {
+            int i = r * stride + a[r];
+            if (a[r] < width - 1) {
+                System.arraycopy(color, i + 1, color, i, width - a[r] - 1);
+                moveEnergies(i + 1, i, width - a[r] - 1);
+                if (seamTable == VERTICAL) {
+                    System.arraycopy(energyTo, i + 1, energyTo, i, width - a[r] - 1);
+                    System.arraycopy(edgeTo, i + 1, edgeTo, i, width - a[r] - 1);
+                }
+            }
+        }
         width--;
+
+        // only the energy of the seam element and its left element changes
+        for (int r = 1; r < height - 1; r++) {
+            int x = a[r];
+            if (x > 0) refreshEnergy(x - 1, r);
+            if (x < width) refreshEnergy(x, r);
+        }
+
+        removedFromTable(a, height, VERTICAL);
+        if (pyramid != null) pyramid.removedVerticalSeam(a, height);
     }
 
     /**
@@ -205,32 +617,216 @@ public class SeamCarver {
      * @param a horizontal seam array
      */
     public void removeHorizontalSeam(int[] a) {
-        if (!isTransposed) transpose(width, height);
-        removeSeam(a, width, height);
+        handleRemoveSeamExceptions(a, width, height);
+        cutHorizontalSeam(a);
+    }
+
+    // removes the horizontal seam given by the first width entries of a
+    private void cutHorizontalSeam(int[] a) {
+        if (spareTable == HORIZONTAL) useSeamTable(HORIZONTAL);
+        if (seamTable == HORIZONTAL) updateSeamTable();
+
+        // row by row, every column below its seam entry moves up by one
+        int top = height;
+        for (int c = 0; c < width; c++) top = Math.min(top, a[c]);
+        for (int r = top; r < height - 1; r++) {
+            int row = r * stride;
+            for (int c = 0; c < width; c++) {
+                if (a[c] <= r) {
+                    color[row + c] = color[row + stride + c];
+                    setEnergy(row + c, energyAt(row + stride + c));
+                }
+            }
+        }
+        if (seamTable == HORIZONTAL) {
+            for (int c = 0; c < width; c++) {
+                int t = c * depth + a[c];
+                if (a[c] < height - 1) {
+                    System.arraycopy(energyTo, t + 1, energyTo, t, height - a[c] - 1);
+                    System.arraycopy(edgeTo, t + 1, edgeTo, t, height - a[c] - 1);
+                }
+            }
+        }
         height--;
+
+        // only the energy of the seam element and the element above it changes
+        for (int c = 1; c < width - 1; c++) {
+            int y = a[c];
+            if (y > 0) refreshEnergy(c, y - 1);
+            if (y < height) refreshEnergy(c, y);
+        }
+
+        removedFromTable(a, width, HORIZONTAL);
+        if (pyramid != null) pyramid.removedHorizontalSeam(a, width);
     }
 
-    // helper for remove seam
-    // suppose the picture is not transposed
-    private void removeSeam(int[] a, int h, int w) {
-        handleRemoveSeamExceptions(a, h, w);
-        for (int r = 0; r < h; r++) {
-            if (a[r] < w - 1) {
-                System.arraycopy(color[r], a[r] + 1, color[r], a[r], w - a[r] - 1);
-                System.arraycopy(energy[r], a[r] + 1, energy[r], a[r], w - a[r] - 1);
+    /**
+     * remove k vertical seams, one after another, from current picture
+     *
+     * @param k number of seams, less than the width
+     */
+    public void removeVerticalSeams(int k) {
+        if (k < 0 || k >= width) throw new IllegalArgumentException("Cannot remove " + k + " of " + width + " columns");
+        int[] seam = new int[height];
+        for (int i = 0; i < k; i++) {
+            findSeam(VERTICAL, seam);
+            cutVerticalSeam(seam);
+        }
+    }
+
+    /**
+     * remove k horizontal seams, one after another, from current picture
+     *
+     * @param k number of seams, less than the height
+     */
+    public void removeHorizontalSeams(int k) {
+        if (k < 0 || k >= height) throw new IllegalArgumentException("Cannot remove " + k + " of " + height + " rows");
+        int[] seam = new int[width];
+        for (int i = 0; i < k; i++) {
+            findSeam(HORIZONTAL, seam);
+            cutHorizontalSeam(seam);
+        }
+    }
+
+    /**
+     * shrink current picture to the given size, removing all horizontal seams before the vertical ones
+     */
+    public void resize(int targetWidth, int targetHeight) {
+        resize(targetWidth, targetHeight, Order.ROWS_FIRST);
+    }
+
+    /**
+     * shrink current picture to the given size, interleaving horizontal and vertical seams in the given order
+     *
+     * @param targetWidth  width between 1 and the current width
+     * @param targetHeight height between 1 and the current height
+     */
+    public void resize(int targetWidth, int targetHeight, Order order) {
+        Objects.requireNonNull(order);
+        if (targetWidth < 1 || targetWidth > width || targetHeight < 1 || targetHeight > height) {
+            throw new IllegalArgumentException("Cannot resize " + width + "x" + height + " to " + targetWidth + "x" + targetHeight);
+        }
+
+        int columns = width - targetWidth;
+        int rows = height - targetHeight;
+        if (order == Order.GREEDY) {
+            keepSpareSeamTable();
+            int[] vertical = new int[height];
+            int[] horizontal = new int[width];
+            for (; columns > 0 && rows > 0; ) {
+                if (findSeam(VERTICAL, vertical) <= findSeam(HORIZONTAL, horizontal)) {
+                    cutVerticalSeam(vertical);
+                    columns--;
+                } else {
+                    cutHorizontalSeam(horizontal);
+                    rows--;
+                }
             }
+        } else if (order == Order.OPTIMAL && columns > 0 && rows > 0) {
+            resizeOptimally(columns, rows);
+            return;
         }
-        // only the energy of the seam element and its left element changes
-        for (int r = 1; r < h - 1; r++) {
-            int x = a[r];
-            if (x > 0) energy[r][x - 1] = (int) getEnergy(x - 1, r, h, w - 1);
-            if (x < w - 1) energy[r][x] = (int) getEnergy(x, r, h, w - 1);
+        removeHorizontalSeams(rows);
+        removeVerticalSeams(columns);
+    }
+
+    // transport map: T(r, c), the least total energy of r horizontal and c vertical seams, is the lesser of T(r - 1, c)
+    // plus the next horizontal seam and T(r, c - 1) plus the next vertical seam. The seams depend on the pictures the
+    // map leads to, so the pictures of the current row of the map are kept in carvers which share the seam table of
+    // this one and are overwritten in place; only the choice of every cell is kept for the whole map. The chosen
+    // order is then traced back and replayed once on this carver
+    private void resizeOptimally(int columns, int rows) {
+        int[] vertical = new int[height];
+        int[] horizontal = new int[width];
+        if (energyTo == null) {
+            energyTo = new double[color.length];
+            edgeTo = new byte[color.length];
+        }
+        BitSet verticalLast = new BitSet((rows + 1) * (columns + 1));  // bit r * (columns + 1) + c: T(r, c) ends in a vertical seam
+        SeamCarver[] carvers = new SeamCarver[columns + 1];
+        double[] cost = new double[columns + 1];
+
+        carvers[0] = new SeamCarver(this);
+        for (int c = 1; c <= columns; c++) {
+            carvers[c] = new SeamCarver(carvers[c - 1]);
+            cost[c] = cost[c - 1] + carvers[c].findSharedSeam(VERTICAL, vertical);
+            carvers[c].cutVerticalSeam(vertical);
+            verticalLast.set(c);
+        }
+        for (int r = 1; r <= rows; r++) {
+            cost[0] += carvers[0].findSharedSeam(HORIZONTAL, horizontal);
+            carvers[0].cutHorizontalSeam(horizontal);
+            for (int c = 1; c <= columns; c++) {
+                // carvers[c - 1] is at T(r, c - 1) already, carvers[c] still at T(r - 1, c)
+                double horizontalCost = cost[c] + carvers[c].findSharedSeam(HORIZONTAL, horizontal);
+                double verticalCost = cost[c - 1] + carvers[c - 1].findSharedSeam(VERTICAL, vertical);
+                if (verticalCost <= horizontalCost) {
+                    carvers[c].copyFrom(carvers[c - 1]);
+                    carvers[c].cutVerticalSeam(vertical);
+                    cost[c] = verticalCost;
+                    verticalLast.set(r * (columns + 1) + c);
+                } else {
+                    carvers[c].cutHorizontalSeam(horizontal);
+                    cost[c] = horizontalCost;
+                }
+            }
+        }
+
+        boolean[] order = new boolean[rows + columns];  // true for a vertical seam
+        for (int r = rows, c = columns, k = order.length - 1; k >= 0; k--) {
+            order[k] = r == 0 || verticalLast.get(r * (columns + 1) + c);
+            if (order[k]) c--;
+            else r--;
         }
+        seamTable = NONE;
+        pending = false;
+        for (boolean isVertical : order) {
+            if (isVertical) {
+                findSeam(VERTICAL, vertical);
+                cutVerticalSeam(vertical);
+            } else {
+                findSeam(HORIZONTAL, horizontal);
+                cutHorizontalSeam(horizontal);
+            }
+        }
+    }
+
+    // finds a seam of the direction from scratch in a seam table shared with other carvers, which it leaves out of date
+    private double findSharedSeam(int direction, int[] seam) {
+        seamTable = NONE;
+        pending = false;
+        double energy = findSeam(direction, seam);
+        seamTable = NONE;
+        return energy;
+    }
+
+    // helper for remove seam: the seam table of the direction is updated by the next search in that direction. In a
+    // table of the other direction, whose steps run across the seam, the steps before the first one next to the seam
+    // keep their pixels and energies, so the next search recomputes only the steps from there
+    private void removedFromTable(int[] a, int length, int direction) {
+        int first = a[0];
+        for (int i = 1; i < length; i++) first = Math.min(first, a[i]);
+        int unchanged = Math.max(first - 1, 0);
+
+        if (seamTable == direction && validSteps >= length) {
+            System.arraycopy(a, 0, removed, 0, length);
+            pending = true;
+        } else {
+            if (seamTable == direction || pending) seamTable = NONE;
+            validSteps = Math.min(validSteps, unchanged);
+            pending = false;
+        }
+        spareValidSteps = Math.min(spareValidSteps, unchanged);
+    }
+
+    // helper for remove seam: a seam of length h with entries between 0 and w - 1
+    static void handleRemoveSeamExceptions(int a[], int h, int w) {
+        if (w <= 1) throw new IllegalArgumentException();
+        handleSeamExceptions(a, h, w);
     }
 
-    // helper for remove seam
-    private void handleRemoveSeamExceptions(int a[], int h, int w) {
-        if (width <= 1 && !isTransposed || height <= 1 && isTransposed) throw new IllegalArgumentException();
+    // helper for seam arguments: a seam of length h with entries between 0 and w - 1
+    static void handleSeamExceptions(int a[], int h, int w) {
         if (a.length != h) throw new IllegalArgumentException();
 
         int prevSeamEntry = a[0];
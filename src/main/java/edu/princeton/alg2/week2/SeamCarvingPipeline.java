@@ -0,0 +1,237 @@
+package edu.princeton.alg2.week2;
+
+import edu.princeton.cs.algs4.Picture;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Carves batches of picture files in three concurrent stages: readers decode the files, carvers resize the pictures
+ * and writers encode the results, every stage handing its pictures on through a bounded queue. At most
+ * readers + carvers + writers + 2 * queueCapacity pictures are in memory at a time however long the batch is.
+ * Every carver thread keeps one SeamCarver for all of its pictures, whose color, energy and seam table buffers grow
+ * to the largest picture it has carved and are reused for the others, so in the steady state it allocates little
+ * besides the carved pictures it hands on. A picture that cannot be read, carved or written is reported with its
+ * error and does not stop the batch
+ *
+ * @author Alexey Novakov
+ */
+public final class SeamCarvingPipeline {
+    private static final Item END = new Item(null, null);   // tells a thread of the next stage to stop
+
+    private final int readers;
+    private final int carvers;
+    private final int writers;
+    private final int queueCapacity;
+    private final SeamCarver.Order order;
+
+    /**
+     * picture file to carve down to the given size, or to its own width or height where that is smaller, and the
+     * png or jpg file to write it to
+     */
+    public static final class Job {
+        private final Path input;
+        private final Path output;
+        private final int width;
+        private final int height;
+
+        public Job(Path input, Path output, int width, int height) {
+            if (width < 1 || height < 1) throw new IllegalArgumentException("Cannot resize to " + width + "x" + height);
+            this.input = Objects.requireNonNull(input);
+            this.output = Objects.requireNonNull(output);
+            this.width = width;
+            this.height = height;
+        }
+
+        public Path input() {
+            return input;
+        }
+
+        public Path output() {
+            return output;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int height() {
+            return height;
+        }
+    }
+
+    // picture of a job on its way between two stages
+    private static final class Item {
+        private final Job job;
+        private final Picture picture;
+
+        Item(Job job, Picture picture) {
+            this.job = job;
+            this.picture = picture;
+        }
+    }
+
+    /**
+     * pipeline with the given number of threads per stage and pictures per queue between two stages
+     *
+     * @param order order of the seams removed from every picture
+     */
+    public SeamCarvingPipeline(int readers, int carvers, int writers, int queueCapacity, SeamCarver.Order order) {
+        if (readers < 1 || carvers < 1 || writers < 1) throw new IllegalArgumentException("Every stage needs a thread");
+        if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity should be positive");
+        this.readers = readers;
+        this.carvers = carvers;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+        this.order = Objects.requireNonNull(order);
+    }
+
+    /**
+     * a job for every png and jpg file of the input directory, in the order of their names, written under the same
+     * name into the output directory
+     */
+    public static List<Job> jobs(Path inputDirectory, Path outputDirectory, int width, int height) {
+        try (Stream<Path> files = Files.list(inputDirectory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().toLowerCase().matches(".*\\.(png|jpg)"))
+                    .sorted()
+                    .map(file -> new Job(file, outputDirectory.resolve(file.getFileName()), width, height))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * carves the pictures of the jobs and waits until all are written
+     *
+     * @return error of every job that failed by its input file, empty if every picture was written
+     */
+    public Map<Path, Exception> run(List<Job> jobs) {
+        Map<Path, Exception> failures = new ConcurrentHashMap<>();
+        BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> carved = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger readersLeft = new AtomicInteger(readers);
+        AtomicInteger carversLeft = new AtomicInteger(carvers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers + carvers + writers);
+        CompletionService<Void> threads = new ExecutorCompletionService<>(executor);
+        try {
+            for (int i = 0; i < readers; i++) threads.submit(() -> read(jobs, next, decoded, readersLeft, failures));
+            for (int i = 0; i < carvers; i++) threads.submit(() -> carve(decoded, carved, carversLeft, failures));
+            for (int i = 0; i < writers; i++) threads.submit(() -> write(carved, failures));
+
+            // a thread only fails on an error, which stops the others
+            for (int i = 0; i < readers + carvers + writers; i++) threads.take().get();
+            return new TreeMap<>(failures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // decodes the pictures of the jobs not taken by another reader; the last reader done stops the carvers
+    private Void read(List<Job> jobs, AtomicInteger next, BlockingQueue<Item> decoded, AtomicInteger readersLeft,
+                      Map<Path, Exception> failures) throws InterruptedException {
+        for (int i = next.getAndIncrement(); i < jobs.size(); i = next.getAndIncrement()) {
+            Job job = jobs.get(i);
+            Picture picture;
+            try {
+                picture = new Picture(job.input.toFile());
+            } catch (RuntimeException e) {
+                failures.put(job.input, e);
+                continue;
+            }
+            decoded.put(new Item(job, picture));
+        }
+        if (readersLeft.decrementAndGet() == 0) {
+            for (int i = 0; i < carvers; i++) decoded.put(END);
+        }
+        return null;
+    }
+
+    // carves every decoded picture in the buffers of one carver; the last carver done stops the writers
+    private Void carve(BlockingQueue<Item> decoded, BlockingQueue<Item> carved, AtomicInteger carversLeft,
+                       Map<Path, Exception> failures) throws InterruptedException {
+        SeamCarver seamCarver = null;
+        for (Item item = decoded.take(); item != END; item = decoded.take()) {
+            Job job = item.job;
+            Picture picture;
+            try {
+                if (seamCarver == null) seamCarver = new SeamCarver(item.picture);
+                else seamCarver.load(item.picture);
+                seamCarver.resize(Math.min(job.width, seamCarver.width()), Math.min(job.height, seamCarver.height()), order);
+                picture = seamCarver.picture();
+            } catch (RuntimeException e) {
+                failures.put(job.input, e);
+                continue;
+            }
+            carved.put(new Item(job, picture));
+        }
+        if (carversLeft.decrementAndGet() == 0) {
+            for (int i = 0; i < writers; i++) carved.put(END);
+        }
+        return null;
+    }
+
+    // encodes every carved picture into the output file of its job
+    private Void write(BlockingQueue<Item> carved, Map<Path, Exception> failures) throws InterruptedException {
+        for (Item item = carved.take(); item != END; item = carved.take()) {
+            try {
+                Pictures.write(item.picture, item.job.output);
+            } catch (RuntimeException e) {
+                failures.put(item.job.input, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * carves every png and jpg file of a directory down to at most the given size into the output directory,
+     * with a carver per core and a reader and a writer per four cores
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 && args.length != 5) {
+            StdOut.println("Usage:\njava SeamCarvingPipeline [input directory] [output directory] [width] [height] [seam order]");
+            return;
+        }
+
+        Path output = Files.createDirectories(Paths.get(args[1]));
+        List<Job> jobs = jobs(Paths.get(args[0]), output, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        SeamCarver.Order order = args.length == 5 ? SeamCarver.Order.valueOf(args[4]) : SeamCarver.Order.ROWS_FIRST;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int io = Math.max(1, cores / 4);
+        SeamCarvingPipeline pipeline = new SeamCarvingPipeline(io, cores, io, cores, order);
+
+        long start = System.nanoTime();
+        Map<Path, Exception> failures = pipeline.run(jobs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        failures.forEach((file, e) -> StdOut.println("Failed to carve " + file + ": " + e.getMessage()));
+        StdOut.printf("carved %d of %d pictures in %.1f seconds, %.1f pictures per second\n",
+                jobs.size() - failures.size(), jobs.size(), seconds, (jobs.size() - failures.size()) / seconds);
+    }
+}
@@ -0,0 +1,114 @@
+package edu.princeton.alg2.week2;
+
+/**
+ * Inner loops of SeamCarver over contiguous pixels: the squared dual gradients of a row, their roots, and the
+ * three-way minimum of a step of a vertical seam search. These are the scalar loops; {@link #load()} returns the
+ * Vector API kernels instead when the build compiled them (Java 16 or later), the JVM runs with
+ * --add-modules jdk.incubator.vector and its vectors hold at least 4 doubles. Both compute every entry with the same
+ * operations in the same order, so seams do not depend on which of them runs
+ *
+ * @author Alexey Novakov
+ */
+class SeamKernels {
+    private static final byte LEFT = -1, STRAIGHT = 0, RIGHT = 1;
+
+    // the Vector API kernels are loaded reflectively: a JVM without the incubator module fails to link them and they
+    // refuse vectors of less than 4 doubles
+    static SeamKernels load() {
+        try {
+            return (SeamKernels) Class.forName("edu.princeton.alg2.week2.VectorSeamKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new SeamKernels();
+        }
+    }
+
+    // squared dual gradient of the inner pixel at index i of row-major colors
+    static int squaredGradient(int[] color, int stride, int i) {
+        int up = color[i - stride], down = color[i + stride], left = color[i - 1], right = color[i + 1];
+        int ry = ((up >> 16) & 0x0ff) - ((down >> 16) & 0x0ff);
+        int gy = ((up >> 8) & 0x0ff) - ((down >> 8) & 0x0ff);
+        int by = (up & 0x0ff) - (down & 0x0ff);
+        int rx = ((left >> 16) & 0x0ff) - ((right >> 16) & 0x0ff);
+        int gx = ((left >> 8) & 0x0ff) - ((right >> 8) & 0x0ff);
+        int bx = (left & 0x0ff) - (right & 0x0ff);
+        return ry * ry + gy * gy + by * by + rx * rx + gx * gx + bx * bx;
+    }
+
+    // squared dual gradients of the inner pixels from (inclusive) to (exclusive) of one row, at the same indices
+    void squaredGradients(int[] color, int stride, int from, int to, double[] squares) {
+        for (int i = from; i < to; i++) squares[i] = squaredGradient(color, stride, i);
+    }
+
+    void squaredGradients(int[] color, int stride, int from, int to, float[] squares) {
+        for (int i = from; i < to; i++) squares[i] = squaredGradient(color, stride, i);
+    }
+
+    void squaredGradients(int[] color, int stride, int from, int to, int[] squares) {
+        for (int i = from; i < to; i++) squares[i] = squaredGradient(color, stride, i);
+    }
+
+    // replaces the squares from (inclusive) to (exclusive) by their roots
+    void sqrt(double[] squares, int from, int to) {
+        for (int i = from; i < to; i++) squares[i] = Math.sqrt(squares[i]);
+    }
+
+    void sqrt(float[] squares, int from, int to) {
+        for (int i = from; i < to; i++) squares[i] = (float) Math.sqrt(squares[i]);
+    }
+
+    // entries from (inclusive) to (exclusive) of the seam table step at t from the one at prev, none of them at either
+    // end of the step: the least of the three entries above plus the energy at step + c, preferring left, then straight
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, double[] energies, int step, int from, int to) {
+        for (int c = from; c < to; c++) {
+            int i = prev + c;
+            double min = energyTo[i - 1];
+            byte edge = LEFT;
+            if (energyTo[i] < min) {
+                min = energyTo[i];
+                edge = STRAIGHT;
+            }
+            if (energyTo[i + 1] < min) {
+                min = energyTo[i + 1];
+                edge = RIGHT;
+            }
+            energyTo[t + c] = min + energies[step + c];
+            edgeTo[t + c] = edge;
+        }
+    }
+
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, float[] energies, int step, int from, int to) {
+        for (int c = from; c < to; c++) {
+            int i = prev + c;
+            double min = energyTo[i - 1];
+            byte edge = LEFT;
+            if (energyTo[i] < min) {
+                min = energyTo[i];
+                edge = STRAIGHT;
+            }
+            if (energyTo[i + 1] < min) {
+                min = energyTo[i + 1];
+                edge = RIGHT;
+            }
+            energyTo[t + c] = min + energies[step + c];
+            edgeTo[t + c] = edge;
+        }
+    }
+
+    void relax(double[] energyTo, byte[] edgeTo, int prev, int t, int[] energies, int step, int from, int to) {
+        for (int c = from; c < to; c++) {
+            int i = prev + c;
+            double min = energyTo[i - 1];
+            byte edge = LEFT;
+            if (energyTo[i] < min) {
+                min = energyTo[i];
+                edge = STRAIGHT;
+            }
+            if (energyTo[i + 1] < min) {
+                min = energyTo[i + 1];
+                edge = RIGHT;
+            }
+            energyTo[t + c] = min + energies[step + c];
+            edgeTo[t + c] = edge;
+        }
+    }
+}
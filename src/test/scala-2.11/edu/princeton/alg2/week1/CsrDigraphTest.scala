@@ -0,0 +1,68 @@
+package edu.princeton.alg2.week1
+
+import edu.princeton.cs.algs4.{Digraph, In}
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+/**
+  * @author Alexey Novakov
+  */
+class CsrDigraphTest extends FlatSpec with Matchers {
+  behavior of "CsrDigraph"
+
+  it should "keep the same adjacency as the digraph it is built from" in {
+    //given
+    val digraph = new Digraph(new In("wordnet/digraph2.txt"))
+    //when
+    val csr = CsrDigraph.of(digraph)
+    //then
+    csr.V should be(digraph.V)
+    csr.E should be(digraph.E)
+    for (v <- 0 until digraph.V) {
+      val targets = (csr.firstEdge(v) until csr.lastEdge(v)).map(csr.target)
+      targets should be(digraph.adj(v).asScala.map(_.intValue).toSeq)
+    }
+  }
+
+  it should "group edges by source vertex in insertion order" in {
+    //when
+    val csr = new CsrDigraph.Builder(4).addEdge(2, 0).addEdge(1, 3).addEdge(2, 1).addEdge(0, 3).build
+    //then
+    csr.E should be(4)
+    csr.outdegree(2) should be(2)
+    csr.outdegree(3) should be(0)
+    (csr.firstEdge(2) until csr.lastEdge(2)).map(csr.target) should be(Seq(0, 1))
+  }
+
+  it should "append the edges of an extension after the edges of their sources" in {
+    //given
+    val builder = new CsrDigraph.Builder(100)
+    for (v <- 1 until 100) builder.addEdge(v, v - 1)
+    val csr = builder.build
+    //when
+    val once = csr.extend(101, Array(50, 100), Array(10, 99), 2)
+    val twice = once.extend(102, Array(50, 101, 7), Array(3, 100, 101), 3)
+    //then
+    once.V should be(101)
+    once.E should be(101)
+    (once.firstEdge(50) until once.lastEdge(50)).map(once.target) should be(Seq(49, 10))
+    (once.firstEdge(100) until once.lastEdge(100)).map(once.target) should be(Seq(99))
+    (once.firstEdge(51) until once.lastEdge(51)).map(once.target) should be(Seq(50))
+    once.outdegree(0) should be(0)
+    once.reachable(Array(100)).count(identity) should be(101)
+    twice.V should be(102)
+    twice.E should be(104)
+    (twice.firstEdge(50) until twice.lastEdge(50)).map(twice.target) should be(Seq(49, 10, 3))
+    (twice.firstEdge(7) until twice.lastEdge(7)).map(twice.target) should be(Seq(6, 101))
+    (twice.firstEdge(101) until twice.lastEdge(101)).map(twice.target) should be(Seq(100))
+    csr.E should be(99)
+    csr.outdegree(50) should be(1)
+  }
+
+  it should "throw IndexOutOfBoundsException if an edge vertex is out of range" in {
+    intercept[IndexOutOfBoundsException] {
+      new CsrDigraph.Builder(2).addEdge(0, 2)
+    }
+  }
+}
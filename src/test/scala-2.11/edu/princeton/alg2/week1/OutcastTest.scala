@@ -2,6 +2,8 @@ package edu.princeton.alg2.week1
 
 import org.scalatest.{FlatSpec, Matchers}
 
+import scala.collection.JavaConverters._
+
 /**
   * @author Alexey Novakov
   */
@@ -19,4 +21,16 @@ class OutcastTest extends FlatSpec with Matchers with WordNetBase {
     outcast.outcast(Array("apple", "pear", "peach", "banana", "lime", "lemon", "blueberry", "strawberry",
       "mango", "watermelon", "potato")) should be("potato")
   }
+
+  it should "return outcasts of many inputs in input order" in {
+    //given
+    val outcast = new Outcast(wordNet)
+    val inputs = java.util.Arrays.asList(
+      Array("horse", "zebra", "cat", "bear", "table"),
+      Array("water", "soda", "bed", "orange_juice", "milk", "apple_juice", "tea", "coffee"))
+    //when
+    val outcasts = outcast.outcasts(inputs.parallelStream).iterator.asScala.toList
+    //then
+    outcasts should be(List("table", "bed"))
+  }
 }
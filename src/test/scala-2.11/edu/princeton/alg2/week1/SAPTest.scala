@@ -1,8 +1,14 @@
 package edu.princeton.alg2.week1
 
+import java.lang.reflect.Modifier
+
+import edu.princeton.alg2.week1.metrics.{QueryStats, SapMetrics}
 import edu.princeton.cs.algs4.{Digraph, In}
 import org.scalatest.{FlatSpec, Matchers}
 
+import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
+
 /**
   * @author Alexey Novakov
   */
@@ -21,6 +27,70 @@ class SAPTest extends FlatSpec with Matchers {
     verifyLengthAndAncestor(1, 6, -1, -1)
   }
 
+  it should "find shortest ancestral path between any vertex in v and any vertex in w" in {
+    //given
+    val sap = new SAP(digraph)
+    //when-then
+    sap.length(Seq[Integer](3, 7).asJava, Seq[Integer](11, 2).asJava) should be(3)
+    sap.ancestor(Seq[Integer](3, 7).asJava, Seq[Integer](11, 2).asJava) should be(0)
+    sap.length(Seq[Integer](9, 10).asJava, Seq[Integer](12, 4).asJava) should be(1)
+    sap.ancestor(Seq[Integer](9, 10).asJava, Seq[Integer](12, 4).asJava) should be(10)
+    sap.length(3, 3) should be(0)
+    sap.ancestor(3, 3) should be(3)
+  }
+
+  it should "answer the same queries from its distance-label index" in {
+    //given
+    implicit val sap = new SAP(digraph)
+    //when
+    val index = sap.buildIndex
+    //then
+    index.vertices should be(digraph.V)
+    index.entries should be > digraph.V
+    verifyLengthAndAncestor(3, 11, 4, 1)
+    verifyLengthAndAncestor(9, 12, 3, 5)
+    verifyLengthAndAncestor(7, 2, 4, 0)
+    verifyLengthAndAncestor(1, 6, -1, -1)
+    sap.length(Seq[Integer](3, 7).asJava, Seq[Integer](11, 2).asJava) should be(3)
+    sap.ancestor(Seq[Integer](9, 10).asJava, Seq[Integer](12, 4).asJava) should be(10)
+  }
+
+  it should "report statistics of every query while metrics are set" in {
+    //given
+    val sap = new SAP(digraph)
+    val recorded = ArrayBuffer[QueryStats]()
+    sap.metrics(new SapMetrics {
+      override def record(stats: QueryStats): Unit = recorded += stats
+    })
+    //when
+    sap.length(3, 11)
+    sap.ancestor(1, 6)
+    sap.metrics(null)
+    sap.length(3, 11)
+    //then
+    recorded.size should be(2)
+    recorded(0).verticesVisited should be(8)
+    recorded(0).edgesScanned should be(6)
+    recorded(0).terminatedEarly should be(true)
+    recorded(1).verticesVisited should be(3)
+    recorded(1).terminatedEarly should be(false)
+    recorded.forall(!_.indexed) should be(true)
+  }
+
+  it should "keep its per-thread search workspaces free of references to any SAP or digraph" in {
+    //given
+    val workspace = classOf[SAP].getDeclaredClasses.find(_.getSimpleName == "Workspace").get
+    val side = workspace.getDeclaredClasses.find(_.getSimpleName == "Side").get
+    //when
+    val fields = Seq(workspace, side).flatMap(_.getDeclaredFields)
+    val graphs: Set[Class[_]] = Set(classOf[SAP], classOf[CsrDigraph], classOf[Digraph])
+    //then
+    Modifier.isStatic(workspace.getModifiers) should be(true)
+    Modifier.isStatic(side.getModifiers) should be(true)
+    fields.filter(_.isSynthetic) should be(empty)
+    fields.map(_.getType).filter(graphs) should be(empty)
+  }
+
   it should "throw IndexOutOfBoundsException if vertex v is not between 0 and DAG.V() - 1" in {
     intercept[IndexOutOfBoundsException] {
       new SAP(digraph).length(1, -9)
@@ -0,0 +1,43 @@
+package edu.princeton.alg2.week1
+
+import java.nio.file.Files
+
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+  * @author Alexey Novakov
+  */
+class WordNetLoaderTest extends FlatSpec with Matchers {
+  behavior of "WordNetLoader"
+
+  it should "load synsets indexed by synset id" in {
+    //when
+    val synsets = WordNetLoader.loadSynsets("wordnet/synsets100-subgraph.txt")
+    //then
+    synsets.length should be(100)
+    synsets(0) should be("C-reactive_protein CRP")
+    synsets(3) should be("actin")
+  }
+
+  it should "load hypernyms as a digraph" in {
+    //when
+    val digraph = WordNetLoader.loadHypernyms("wordnet/hypernyms15Tree.txt", 15)
+    //then
+    digraph.V should be(15)
+    digraph.E should be(14)
+    digraph.outdegree(0) should be(0)
+    digraph.target(digraph.firstEdge(13)) should be(6)
+  }
+
+  it should "throw IllegalArgumentException on a malformed synset id" in {
+    //given
+    val file = Files.createTempFile("synsets", ".txt")
+    Files.write(file, "0,a,gloss\nx1,b,gloss\n".getBytes)
+    //when-then
+    try {
+      intercept[IllegalArgumentException] {
+        WordNetLoader.loadSynsets(file.toString)
+      }
+    } finally Files.delete(file)
+  }
+}
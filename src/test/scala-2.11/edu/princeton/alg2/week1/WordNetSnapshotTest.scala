@@ -0,0 +1,80 @@
+package edu.princeton.alg2.week1
+
+import java.nio.file.Files
+
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+/**
+  * @author Alexey Novakov
+  */
+class WordNetSnapshotTest extends FlatSpec with Matchers {
+  behavior of "WordNet snapshot"
+
+  it should "answer the same queries as the WordNet it was written from" in {
+    //given
+    val wordNet = new WordNet("wordnet/synsets100-subgraph.txt", "wordnet/hypernyms100-subgraph.txt")
+    val file = Files.createTempFile("wordnet", ".snapshot")
+    try {
+      //when
+      wordNet.writeSnapshot(file.toString)
+      val snapshot = WordNet.fromSnapshot(file.toString)
+      //then
+      snapshot.nouns.asScala.toSet should be(wordNet.nouns.asScala.toSet)
+      snapshot.isNoun("actin") should be(true)
+      snapshot.isNoun("CRPs") should be(false)
+      for (a <- Seq("actin", "CRP", "factor_IX"); b <- Seq("albumin", "Hageman_factor")) {
+        snapshot.distance(a, b) should be(wordNet.distance(a, b))
+        snapshot.sap(a, b) should be(wordNet.sap(a, b))
+      }
+    } finally Files.delete(file)
+  }
+
+  it should "keep the distance-label index" in {
+    //given
+    val wordNet = new WordNet("wordnet/synsets100-subgraph.txt", "wordnet/hypernyms100-subgraph.txt")
+    val index = wordNet.buildIndex
+    val file = Files.createTempFile("wordnet", ".snapshot")
+    try {
+      //when
+      wordNet.writeSnapshot(file.toString)
+      val snapshot = WordNet.fromSnapshot(file.toString)
+      //then
+      snapshot.index.entries should be(index.entries)
+      snapshot.distance("actin", "albumin") should be(wordNet.distance("actin", "albumin"))
+      snapshot.sap("CRP", "factor_IX") should be(wordNet.sap("CRP", "factor_IX"))
+    } finally Files.delete(file)
+  }
+
+  it should "open without checking the section checksums if not asked to verify" in {
+    //given
+    val wordNet = new WordNet("wordnet/synsets100-subgraph.txt", "wordnet/hypernyms100-subgraph.txt")
+    wordNet.buildIndex
+    val file = Files.createTempFile("wordnet", ".snapshot")
+    try {
+      //when
+      wordNet.writeSnapshot(file.toString)
+      val snapshot = WordNet.fromSnapshot(file.toString, 0, false)
+      //then
+      snapshot.index.entries should be(wordNet.index.entries)
+      snapshot.distance("actin", "albumin") should be(wordNet.distance("actin", "albumin"))
+      snapshot.sap("CRP", "factor_IX") should be(wordNet.sap("CRP", "factor_IX"))
+    } finally Files.delete(file)
+  }
+
+  it should "throw IllegalArgumentException if the snapshot is corrupted" in {
+    //given
+    val file = Files.createTempFile("wordnet", ".snapshot")
+    try {
+      new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt").writeSnapshot(file.toString)
+      val bytes = Files.readAllBytes(file)
+      bytes(200) = (bytes(200) ^ 1).toByte
+      Files.write(file, bytes)
+      //when-then
+      intercept[IllegalArgumentException] {
+        WordNet.fromSnapshot(file.toString)
+      }
+    } finally Files.delete(file)
+  }
+}
@@ -34,6 +34,107 @@ class WordNetTest extends FlatSpec with Matchers with WordNetBase {
     }
   }
 
+  it should "cache distance and common ancestor of noun pairs in any order" in {
+    //given
+    val cachedWordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt", 2)
+    //when
+    cachedWordNet.distance("h", "i") should be(2)
+    cachedWordNet.sap("i", "h") should be("d")
+    cachedWordNet.distance("a", "b")
+    cachedWordNet.distance("c", "d")
+    //then
+    cachedWordNet.cache.hits should be(1)
+    cachedWordNet.cache.misses should be(3)
+    cachedWordNet.cache.evictions should be(1)
+    cachedWordNet.cache.size should be(2)
+  }
+
+  it should "add synsets, nouns and hypernyms, invalidating only the affected cached pairs" in {
+    //given
+    val treeWordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt", 10)
+    treeWordNet.distance("h", "c") should be(4)
+    treeWordNet.distance("j", "e") should be(3)
+    //when
+    val update = treeWordNet.update
+    val id = update.addSynset("p q")
+    update.addHypernym(id, 2).addHypernym(7, 2).addNoun(4, "p").commit()
+    //then
+    id should be(15)
+    treeWordNet.synsetCount should be(16)
+    treeWordNet.cache.invalidations should be(1)
+    treeWordNet.distance("j", "e") should be(3)
+    treeWordNet.cache.hits should be(1)
+    treeWordNet.distance("h", "c") should be(1)
+    treeWordNet.distance("p", "c") should be(1)
+    treeWordNet.sap("q", "h") should be("c")
+    treeWordNet.sap("p", "e") should be("e p")
+  }
+
+  it should "reject updates creating a cycle or a second root, keeping the previous version" in {
+    //given
+    val treeWordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt")
+    treeWordNet.buildIndex
+    //when-then
+    intercept[IllegalArgumentException] {
+      treeWordNet.update.addHypernym(0, 14).commit()
+    }
+    intercept[IllegalArgumentException] {
+      val update = treeWordNet.update
+      update.addSynset("r")
+      update.commit()
+    }
+    treeWordNet.synsetCount should be(15)
+    treeWordNet.distance("a", "o") should be(6)
+  }
+
+  it should "answer is-a queries and list hypernyms and hyponyms from the closure index" in {
+    import scala.collection.JavaConverters._
+    //given
+    val treeWordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt")
+    //when-then
+    treeWordNet.isHypernym("a", "h") should be(true)
+    treeWordNet.isHypernym("h", "a") should be(false)
+    treeWordNet.isHypernym("h", "h") should be(false)
+    treeWordNet.isHypernym("c", "h") should be(false)
+    treeWordNet.hypernyms("h").asScala should be(Seq("a", "b", "d"))
+    treeWordNet.hyponyms("f").asScala should be(Seq("g", "j", "k", "l", "m", "n", "o"))
+    treeWordNet.hyponyms("o").asScala should be(empty)
+    treeWordNet.closure.vertices should be(15)
+    treeWordNet.closure.sizeInBytes should be > 0L
+    //and after an update
+    treeWordNet.update.addHypernym(7, 2).commit()
+    treeWordNet.isHypernym("c", "h") should be(true)
+    treeWordNet.hyponyms("c").asScala should be(Seq("h"))
+  }
+
+  it should "keep the closure index of the full WordNet close to one interval per synset" in {
+    //when
+    val closure = wordNet.closure
+    //then: 82,192 synsets, 88,157 intervals, 1,691,564 bytes
+    closure.vertices should be(82192)
+    closure.intervals should be < 90000
+    closure.sizeInBytes should be < 2L * 1024 * 1024
+  }
+
+  it should "return distances between many noun pairs at once" in {
+    //given
+    val treeWordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt")
+    //when-then
+    treeWordNet.distances(Array("h", "a", "i"), Array("i", "b", "i")) should be(Array(2, 1, 0))
+    treeWordNet.distanceMatrix(Array("h", "i", "a")) should be(Array(Array(0, 2, 3), Array(2, 0, 3), Array(3, 3, 0)))
+  }
+
+  it should "return nouns starting with a prefix in sorted order" in {
+    import scala.collection.JavaConverters._
+    //given
+    val subgraph = new WordNet("wordnet/synsets100-subgraph.txt", "wordnet/hypernyms100-subgraph.txt")
+    //when-then
+    subgraph.nounsWithPrefix("albu", 10).asScala should be(Seq("albumen", "albumin", "albuminoid"))
+    subgraph.nounsWithPrefix("anti", 2).asScala should be(Seq("antihaemophilic_factor", "antihaemophilic_globulin"))
+    subgraph.nounsWithPrefix("zz", 10) shouldBe empty
+    subgraph.dictionarySizeInBytes should be > 0L
+  }
+
   it should "throws an IllegalArgumentException when the input is not a rooted DAG" in {
     intercept[IllegalArgumentException] {
       new WordNet("wordnet/synsets3.txt", "wordnet/hypernyms3InvalidTwoRoots.txt")
@@ -0,0 +1,42 @@
+package edu.princeton.alg2.week1.metrics
+
+import java.lang.management.ManagementFactory
+
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+  * @author Alexey Novakov
+  */
+class SapHistogramsTest extends FlatSpec with Matchers {
+  behavior of "SapHistograms"
+
+  it should "aggregate latency and visited vertices of recorded queries" in {
+    //given
+    val histograms = new SapHistograms
+    //when
+    (1 to 100).foreach(i => histograms.record(new QueryStats(i * 1000, i, 2 * i, 1, i % 10 == 0, false)))
+    histograms.record(QueryStats.indexed(500))
+    //then
+    histograms.getQueries should be(101)
+    histograms.getIndexedQueries should be(1)
+    histograms.getEarlyTerminations should be(10)
+    histograms.getEdgesScanned should be(10100)
+    histograms.getVisitedMax should be(100)
+    histograms.getVisitedP50 should (be >= 50L and be <= 50L + 50 / 8)
+    histograms.getLatencyP99Nanos should (be >= 99000L and be <= 99000L + 99000 / 8)
+    histograms.getLatencyMaxNanos should be(100000)
+  }
+
+  it should "be readable over JMX and reset" in {
+    //given
+    val histograms = new SapHistograms
+    histograms.record(new QueryStats(2000, 7, 6, 2, true, false))
+    //when
+    val name = histograms.register("test")
+    //then
+    ManagementFactory.getPlatformMBeanServer.getAttribute(name, "VisitedMax") should be(7L)
+    histograms.reset()
+    ManagementFactory.getPlatformMBeanServer.getAttribute(name, "Queries") should be(0L)
+    histograms.unregister("test")
+  }
+}
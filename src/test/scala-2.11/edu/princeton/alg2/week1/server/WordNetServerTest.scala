@@ -0,0 +1,62 @@
+package edu.princeton.alg2.week1.server
+
+import java.io.{BufferedReader, InputStreamReader, PrintWriter}
+import java.net.Socket
+
+import edu.princeton.alg2.week1.WordNet
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+  * @author Alexey Novakov
+  */
+class WordNetServerTest extends FlatSpec with Matchers {
+  behavior of "WordNetServer"
+
+  it should "answer line protocol requests over one shared WordNet" in {
+    //given
+    val wordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt")
+    val server = new WordNetServer(wordNet, 0, 2)
+    val socket = new Socket("localhost", server.port)
+    try {
+      val out = new PrintWriter(socket.getOutputStream, true)
+      val in = new BufferedReader(new InputStreamReader(socket.getInputStream))
+      def request(line: String) = {
+        out.println(line)
+        in.readLine
+      }
+      //when-then
+      request("ISNOUN h") should be("OK true")
+      request("DISTANCE h i") should be("OK 2")
+      request("SAP i h") should be("OK d")
+      request("OUTCAST h i a o") should be("OK o")
+      request("DISTANCE h unknown") should startWith("ERR")
+      request("UNKNOWN h") should startWith("ERR")
+    } finally {
+      socket.close()
+      server.close()
+    }
+  }
+
+  it should "answer pipelined requests in request order" in {
+    //given
+    val wordNet = new WordNet("wordnet/synsets15.txt", "wordnet/hypernyms15Tree.txt")
+    val server = new WordNetServer(wordNet, 0, 2)
+    val socket = new Socket("localhost", server.port)
+    try {
+      val out = new PrintWriter(socket.getOutputStream)
+      val in = new BufferedReader(new InputStreamReader(socket.getInputStream))
+      val requests = Seq("DISTANCE h i", "sap i h", "ISNOUN zz", "OUTCAST h i a o", "DISTANCE h") ++ (0 until 100).map(i => s"ISNOUN ${('a' + i % 26).toChar}")
+      //when
+      requests.foreach(out.println)
+      out.flush()
+      val responses = requests.map(_ => in.readLine)
+      //then
+      responses.take(4) should be(Seq("OK 2", "OK d", "OK false", "OK o"))
+      responses(4) should startWith("ERR")
+      responses.drop(5) should be((0 until 100).map(i => if (i % 26 < 15) "OK true" else "OK false"))
+    } finally {
+      socket.close()
+      server.close()
+    }
+  }
+}
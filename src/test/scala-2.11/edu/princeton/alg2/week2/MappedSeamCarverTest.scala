@@ -0,0 +1,69 @@
+package edu.princeton.alg2.week2
+
+import java.nio.file.Files
+
+import edu.princeton.cs.algs4.Picture
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+  * @author Alexey Novakov
+  */
+class MappedSeamCarverTest extends FlatSpec with Matchers {
+  behavior of "MappedSeamCarver"
+
+  def picture(name: String) = new Picture(s"seamCarving/$name.png")
+
+  it should "find and remove the same seams as SeamCarver" in {
+    //given
+    val directory = Files.createTempDirectory("seams")
+    val seamCarver = new SeamCarver(picture("chameleon"))
+    val mapped = new MappedSeamCarver(picture("chameleon"), directory)
+    //when
+    for (i <- 0 until 10) {
+      val vertical = mapped.findVerticalSeam
+      vertical should be(seamCarver.findVerticalSeam)
+      mapped.removeVerticalSeam(vertical)
+      seamCarver.removeVerticalSeam(vertical)
+
+      val horizontal = mapped.findHorizontalSeam
+      horizontal should be(seamCarver.findHorizontalSeam)
+      mapped.removeHorizontalSeam(horizontal)
+      seamCarver.removeHorizontalSeam(horizontal)
+    }
+    //then
+    mapped.width should be(590)
+    mapped.height should be(290)
+    mapped.energy(100, 100) should be(seamCarver.energy(100, 100))
+    mapped.picture should be(seamCarver.picture)
+    mapped.close()
+    directory.toFile.list shouldBe empty
+  }
+
+  it should "carve a file of raw pixels" in {
+    //given
+    val directory = Files.createTempDirectory("seams")
+    val file = directory.resolve("10x12.argb")
+    val original = new MappedSeamCarver(picture("10x12"), directory)
+    original.writeArgb(file)
+    original.close()
+    //when
+    val mapped = MappedSeamCarver.open(file, 10, 12, directory)
+    val verticalSeam = mapped.findVerticalSeam
+    mapped.removeVerticalSeam(verticalSeam)
+    //then
+    verticalSeam should be(Array(5, 6, 7, 8, 7, 7, 6, 7, 6, 5, 6, 5))
+    mapped.width should be(9)
+    mapped.close()
+    Files.delete(file)
+  }
+
+  it should "throw IllegalArgumentException if the file does not hold the given size" in {
+    //given
+    val directory = Files.createTempDirectory("seams")
+    val file = Files.write(directory.resolve("short.argb"), new Array[Byte](12))
+    //when-then
+    intercept[IllegalArgumentException] {
+      MappedSeamCarver.open(file, 2, 2, directory)
+    }
+  }
+}
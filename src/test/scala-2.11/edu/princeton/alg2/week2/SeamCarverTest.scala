@@ -58,6 +58,36 @@ class SeamCarverTest extends FlatSpec with Matchers {
     seamCarver.height should be(4)
   }
 
+  it should "carve raw ARGB pixels like the picture they make up" in {
+    //given
+    val picture = fixture.picture
+    val argb = new SeamCarver(picture).argb
+    //when
+    val seamCarver = new SeamCarver(argb, 3, 4)
+    //then
+    argb.length should be(12)
+    argb(1 * 3 + 2) should be(new Color(255, 153, 255).getRGB)
+    seamCarver.picture should be(picture)
+    seamCarver.findVerticalSeam should be(Array(0, 1, 1, 0))
+  }
+
+  it should "read a picture with its origin in the lower left corner" in {
+    //given
+    val picture = new Picture(fixture.picture)
+    picture.setOriginLowerLeft()
+    //when
+    val seamCarver = new SeamCarver(picture)
+    //then
+    seamCarver.picture.get(0, 0) should be(picture.get(0, 0))
+    seamCarver.picture.get(2, 3) should be(picture.get(2, 3))
+  }
+
+  it should "throw IllegalArgumentException if the pixels do not make up the given size" in {
+    intercept[IllegalArgumentException] {
+      new SeamCarver(new Array[Int](12), 4, 4)
+    }
+  }
+
   it should "return energy" in {
     //given
     val seamCarver = fixture.seamCarver
@@ -301,6 +331,203 @@ class SeamCarverTest extends FlatSpec with Matchers {
     horizonatalSeam should be(Array(1, 2, 1, 2, 1, 0))
   }
 
+  it should "find the same seams after removals as with a seam table computed from scratch" in {
+    //given
+    val incremental = new SeamCarver(picture("chameleon"))
+    val fromScratch = new SeamCarver(picture("chameleon"))
+    //when
+    for (i <- 0 until 30) {
+      val vertical = i % 10 < 7
+      if (vertical) fromScratch.findHorizontalSeam else fromScratch.findVerticalSeam  // discards the table
+      val seam = if (vertical) incremental.findVerticalSeam else incremental.findHorizontalSeam
+      val expected = if (vertical) fromScratch.findVerticalSeam else fromScratch.findHorizontalSeam
+      //then
+      seam should be(expected)
+      if (vertical) {
+        incremental.removeVerticalSeam(seam)
+        fromScratch.removeVerticalSeam(expected)
+      } else {
+        incremental.removeHorizontalSeam(seam)
+        fromScratch.removeHorizontalSeam(expected)
+      }
+    }
+    incremental.picture should be(fromScratch.picture)
+  }
+
+  it should "remove seams in batches like one seam at a time" in {
+    //given
+    val batch = new SeamCarver(picture("10x12"))
+    val oneByOne = new SeamCarver(picture("10x12"))
+    //when
+    batch.resize(6, 9)
+    for (i <- 0 until 3) oneByOne.removeHorizontalSeam(oneByOne.findHorizontalSeam)
+    for (i <- 0 until 4) oneByOne.removeVerticalSeam(oneByOne.findVerticalSeam)
+    //then
+    batch.width should be(6)
+    batch.height should be(9)
+    batch.picture should be(oneByOne.picture)
+  }
+
+  it should "resize to the same size in every seam order" in {
+    for (order <- SeamCarver.Order.values) {
+      //given
+      val seamCarver = new SeamCarver(picture("chameleon"))
+      //when
+      seamCarver.resize(590, 294, order)
+      //then
+      seamCarver.width should be(590)
+      seamCarver.height should be(294)
+    }
+  }
+
+  it should "resize greedily in less than twice the time of removing all rows first" in {
+    //given
+    val chameleon = picture("chameleon")
+    def time(order: SeamCarver.Order) = (1 to 5).map(_ => {
+      val seamCarver = new SeamCarver(chameleon)
+      val start = System.nanoTime
+      seamCarver.resize(570, 280, order)
+      System.nanoTime - start
+    }).min
+    time(SeamCarver.Order.GREEDY)
+    //when
+    val rowsFirst = time(SeamCarver.Order.ROWS_FIRST)
+    val greedy = time(SeamCarver.Order.GREEDY)
+    //then
+    greedy should be < 2 * rowsFirst
+  }
+
+  it should "find approximate seams with no less energy than the exact seam" in {
+    //given
+    val seamCarver = new SeamCarver(picture("chameleon"))
+    //when
+    val extra = (0 to 4).map(levels => {
+      val verticalSeam = seamCarver.findVerticalSeam(levels)
+      val horizontalSeam = seamCarver.findHorizontalSeam(levels)
+      seamCarver.extraHorizontalSeamEnergy(horizontalSeam) should be >= 0.0
+      seamCarver.extraVerticalSeamEnergy(verticalSeam)
+    })
+    //then
+    seamCarver.findVerticalSeam(0) should be(seamCarver.findVerticalSeam)
+    extra.head should be(0.0)
+    extra.forall(_ >= 0.0) should be(true)
+    extra.last should be > 0.0
+    seamCarver.removeVerticalSeam(seamCarver.findVerticalSeam(3))
+    seamCarver.width should be(599)
+  }
+
+  it should "find the same approximate seams after removals as a carver which searched none before" in {
+    //given
+    val searched = new SeamCarver(picture("chameleon"))
+    val fresh = new SeamCarver(picture("chameleon"))
+    //when
+    (1 to 6).foreach(i => {
+      val verticalSeam = searched.findVerticalSeam(2)
+      val horizontalSeam = searched.findHorizontalSeam(3)
+      if (i % 2 == 0) {
+        searched.removeVerticalSeam(verticalSeam)
+        fresh.removeVerticalSeam(verticalSeam)
+      } else {
+        searched.removeHorizontalSeam(horizontalSeam)
+        fresh.removeHorizontalSeam(horizontalSeam)
+      }
+    })
+    //then
+    searched.findVerticalSeam(2) should be(fresh.findVerticalSeam(2))
+    searched.findHorizontalSeam(3) should be(fresh.findHorizontalSeam(3))
+  }
+
+  it should "throw IllegalArgumentException for a negative number of levels or an invalid seam" in {
+    //given
+    val seamCarver = new SeamCarver(fixture.picture)
+    //when-then
+    intercept[IllegalArgumentException] {
+      seamCarver.findVerticalSeam(-1)
+    }
+    intercept[IllegalArgumentException] {
+      seamCarver.extraVerticalSeamEnergy(Array(0, 2, 1, 0))
+    }
+  }
+
+  it should "throw IllegalArgumentException if a batch removes every column or row" in {
+    //given
+    val seamCarver = new SeamCarver(fixture.picture)
+    //when-then
+    intercept[IllegalArgumentException] {
+      seamCarver.removeVerticalSeams(3)
+    }
+    intercept[IllegalArgumentException] {
+      seamCarver.resize(3, 5)
+    }
+  }
+
+  it should "carve a loaded picture like a new carver" in {
+    //given
+    val seamCarver = new SeamCarver(picture("chameleon"))
+    seamCarver.removeVerticalSeam(seamCarver.findVerticalSeam)
+    //when
+    seamCarver.load(picture("HJocean"))
+    seamCarver.load(picture("10x12"))
+    //then
+    val newCarver = new SeamCarver(picture("10x12"))
+    seamCarver.width should be(10)
+    seamCarver.height should be(12)
+    seamCarver.picture should be(newCarver.picture)
+    seamCarver.findVerticalSeam should be(newCarver.findVerticalSeam)
+    seamCarver.findHorizontalSeam should be(newCarver.findHorizontalSeam)
+    seamCarver.resize(5, 6)
+    newCarver.resize(5, 6)
+    seamCarver.picture should be(newCarver.picture)
+  }
+
+  it should "find the same seams with float energies as with double energies" in {
+    for (name <- Seq("chameleon", "HJocean", "HJoceanTransposed", "10x12", "12x10", "diagonals", "stripes")) {
+      //given
+      val seamCarver = new SeamCarver(picture(name))
+      val floatCarver = new SeamCarver(picture(name), SeamCarver.Precision.FLOAT)
+      //when
+      for (i <- 0 until math.min(10, math.min(seamCarver.width, seamCarver.height) - 2)) {
+        val vertical = floatCarver.findVerticalSeam
+        vertical should be(seamCarver.findVerticalSeam)
+        floatCarver.removeVerticalSeam(vertical)
+        seamCarver.removeVerticalSeam(vertical)
+
+        val horizontal = floatCarver.findHorizontalSeam
+        horizontal should be(seamCarver.findHorizontalSeam)
+        floatCarver.removeHorizontalSeam(horizontal)
+        seamCarver.removeHorizontalSeam(horizontal)
+      }
+      //then
+      floatCarver.picture should be(seamCarver.picture)
+    }
+  }
+
+  it should "find seams of least squared energy in squared precision" in {
+    //given
+    val seamCarver = new SeamCarver(picture("7x10"), SeamCarver.Precision.SQUARED)
+    def squared(x: Int, y: Int) = math.round(seamCarver.energy(x, y) * seamCarver.energy(x, y))
+    for (i <- 0 until 3) {
+      //when
+      val vertical = seamCarver.findVerticalSeam
+      val horizontal = seamCarver.findHorizontalSeam
+      //then
+      vertical.zipWithIndex.map { case (x, y) => squared(x, y) }.sum should be(
+        leastSeam(seamCarver.width, seamCarver.height, squared))
+      horizontal.zipWithIndex.map { case (y, x) => squared(x, y) }.sum should be(
+        leastSeam(seamCarver.height, seamCarver.width, (y, x) => squared(x, y)))
+      seamCarver.removeVerticalSeam(vertical)
+      seamCarver.removeHorizontalSeam(seamCarver.findHorizontalSeam)
+    }
+  }
+
+  // least energy of all vertical seams of a w by h picture, by trying them all
+  def leastSeam(w: Int, h: Int, energy: (Int, Int) => Long): Long = {
+    def from(x: Int, y: Int): Long =
+      if (y == h - 1) energy(x, y)
+      else energy(x, y) + (x - 1 to x + 1).filter(c => c >= 0 && c < w).map(from(_, y + 1)).min
+    (0 until w).map(from(_, 0)).min
+  }
+
   def printEnergy(seamCarver: SeamCarver, verticalSeam: Array[Int]) = {
     seamCarver.picture //rotate back if needed
 
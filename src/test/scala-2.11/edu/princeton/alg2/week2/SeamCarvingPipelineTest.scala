@@ -0,0 +1,53 @@
+package edu.princeton.alg2.week2
+
+import java.nio.file.{Files, Paths}
+
+import edu.princeton.cs.algs4.Picture
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+  * @author Alexey Novakov
+  */
+class SeamCarvingPipelineTest extends FlatSpec with Matchers {
+  behavior of "SeamCarvingPipeline"
+
+  def picture(name: String) = new Picture(s"seamCarving/$name.png")
+
+  it should "carve every picture of a directory like SeamCarver" in {
+    //given
+    val input = Files.createTempDirectory("pictures")
+    val output = Files.createTempDirectory("carved")
+    for (name <- Seq("chameleon", "HJocean", "10x12")) Files.copy(Paths.get(s"seamCarving/$name.png"), input.resolve(s"$name.png"))
+    val jobs = SeamCarvingPipeline.jobs(input, output, 300, 200)
+    //when
+    val failures = new SeamCarvingPipeline(1, 2, 1, 1, SeamCarver.Order.ROWS_FIRST).run(jobs)
+    //then
+    failures.isEmpty should be(true)
+    jobs.size should be(3)
+    for (name <- Seq("chameleon", "HJocean", "10x12")) {
+      val seamCarver = new SeamCarver(picture(name))
+      seamCarver.resize(Math.min(300, seamCarver.width), Math.min(200, seamCarver.height))
+      new Picture(output.resolve(s"$name.png").toFile) should be(seamCarver.picture)
+    }
+  }
+
+  it should "report a picture that cannot be read and carve the others" in {
+    //given
+    val input = Files.createTempDirectory("pictures")
+    val output = Files.createTempDirectory("carved")
+    Files.copy(Paths.get("seamCarving/10x12.png"), input.resolve("10x12.png"))
+    val broken = Files.write(input.resolve("broken.png"), Array[Byte](1, 2, 3))
+    //when
+    val failures = new SeamCarvingPipeline(2, 1, 2, 1, SeamCarver.Order.GREEDY).run(SeamCarvingPipeline.jobs(input, output, 5, 5))
+    //then
+    failures.size should be(1)
+    failures.containsKey(broken) should be(true)
+    new Picture(output.resolve("10x12.png").toFile).width should be(5)
+  }
+
+  it should "throw IllegalArgumentException if a stage has no thread" in {
+    intercept[IllegalArgumentException] {
+      new SeamCarvingPipeline(1, 0, 1, 1, SeamCarver.Order.ROWS_FIRST)
+    }
+  }
+}